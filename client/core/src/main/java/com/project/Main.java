@@ -1,12 +1,20 @@
 package com.project;
 
 import com.badlogic.gdx.Game;
+import com.project.clases.MenuAssets;
 import com.project.screens.LoginScreen;
 
 
 public class Main extends Game {
     @Override
     public void create() {
-        this.setScreen(new LoginScreen(this)); // pantalla inicial
+        MenuAssets.load(); // texturas del menú para este contexto GL
+        this.setScreen(LoginScreen.firstScreen(this)); // pantalla inicial (el menú si hay sesión guardada)
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        MenuAssets.dispose();
     }
 }
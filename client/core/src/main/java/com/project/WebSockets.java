@@ -1,100 +1,277 @@
 package com.project;
 
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.PingFrame;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 import org.json.JSONException;
 import org.json.JSONObject; // Asegúrate de importar esta clase para manejar JSON
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.project.clases.ClockSync;
+import com.project.clases.EndpointSelector;
+import com.project.clases.GameState;
+import com.project.clases.InputPacket;
+import com.project.clases.MessageDispatcher;
+import com.project.clases.MessageReader;
+import com.project.clases.MessageWriter;
+import com.project.clases.MeteredDeflateExtension;
+import com.project.clases.NetworkConfig;
+import com.project.clases.NetworkMetrics;
+import com.project.clases.OutboundQueue;
+import com.project.clases.SnapshotDecoder;
+import com.project.clases.SnapshotExchange;
+import com.project.clases.TransportStats;
+import com.project.clases.TunedSocketFactory;
 import com.project.screens.GameScreen;
 import com.project.screens.MenuScreen;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.json.JsonObject;
 
 public class WebSockets {
-    private WebSocketClient webSocketClient;
-    private MenuScreen menuScreen;
-    private GameScreen gameScreen;
-    private String playerId;
+    private volatile WebSocketClient webSocketClient;
+    private volatile MenuScreen menuScreen;
+    private volatile GameScreen gameScreen; // Se asigna desde el render y se lee desde el hilo del WebSocket
+    private volatile String playerId;
+
+    // Reconexión: el token permite volver a la misma sesión (mismo id y lobby) tras un corte
+    private String resumeToken;
+    private boolean resuming = false;
+    private String pendingClientId;      // Id de la conexión nueva mientras se espera "resumed"
+    private String pendingResumeToken;
+    private int reconnectAttempts = 0;
+    private volatile boolean disposed = false;
+    private volatile int sessionEpoch = 0; // Cambia cada vez que se retoma la sesión
+    private volatile boolean warnedDisconnected = false;
+    // Reconexiones y tareas periódicas (ping de RTT, ritmos de las métricas)
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "websocket-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Estado de la partida, se decodifica siempre para no perder la base de los deltas.
+    // Solo lo toca el hilo del WebSocket; el render lee las copias publicadas en snapshots.
+    private final GameState snapshotState = new GameState();
+    private final SnapshotDecoder snapshotDecoder = new SnapshotDecoder();
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+
+    // Handlers de los mensajes de texto por tipo (solo en el hilo del WebSocket)
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
+
+    // Frames reutilizados para todos los envíos (solo desde el hilo de la cola de salida)
+    private final TextFrame textFrame = new TextFrame();
+    private final BinaryFrame binaryFrame = new BinaryFrame();
+
+    // Bytes por tipo de mensaje, antes y después de permessage-deflate
+    private final TransportStats transportStats = new TransportStats();
+
+    // Nadie escribe directamente en el socket: todo pasa por la cola, que respeta prioridades y backpressure
+    private final OutboundQueue outboundQueue = new OutboundQueue(new OutboundQueue.Sender() {
+        @Override
+        public boolean isOpen() {
+            return webSocketClient != null && webSocketClient.isOpen();
+        }
+
+        @Override
+        public boolean hasBufferedData() {
+            return webSocketClient != null && webSocketClient.hasBufferedData();
+        }
+
+        @Override
+        public void send(ByteBuffer frame, boolean binary, Array<String> types, IntArray lengths) {
+            writeFrame(frame, binary, types, lengths);
+        }
+    }, NetworkConfig.outboundQueueBytes, NetworkConfig.criticalQueueMessages, NetworkConfig.batchOutbound);
+
+    // Reloj del servidor estimado con timeSync: sitúa snapshots y ataques en la línea de tiempo local
+    private final ClockSync clock = new ClockSync();
+
+    private final NetworkMetrics metrics = new NetworkMetrics(transportStats, outboundQueue, clock);
 
-    // Guardar estos valores
+    // Los ping de RTT llevan este marcador y la hora de envío; los del heartbeat van vacíos
+    private static final byte RTT_PING_MARKER = 'R';
+
+    // Guardar estos valores. Se conocen al terminar el login (identify), que puede ser después de conectar.
     private String id;
     private String username;
     private String email;
     private String phone;
     private String validated;
+    private boolean identified = false;
+    private String pendingUserInfoClientId; // clientId recibido antes de identify()
+    private volatile int totalClients = -1;
+
+    private long connectStartedAt;
+    private volatile boolean opened; // Si el último intento de conexión llegó a abrirse
+
+    // Nodo del servidor al que se conecta (el de menor latencia de NetworkConfig.gameEndpoints)
+    private final EndpointSelector endpoints = new EndpointSelector(NetworkConfig.gameEndpoints);
+
+    // Conexión abierta por adelantado desde el login: DNS, TCP, TLS y upgrade mientras el usuario escribe
+    private static WebSockets preconnected;
 
-    public WebSockets(MenuScreen menuScreen, String id, String username, String email, String phone, String validated) {
+    public static synchronized void preconnect() {
+        if (preconnected == null) {
+            preconnected = new WebSockets();
+        }
+    }
+
+    // Para los tiempos del login: si la conexión abierta por adelantado ya ha terminado el handshake
+    public static synchronized boolean isPreconnectOpen() {
+        return preconnected != null && preconnected.webSocketClient != null && preconnected.webSocketClient.isOpen();
+    }
+
+    // El menú se queda con la conexión ya abierta (o abre una si no se ha llamado a preconnect)
+    public static synchronized WebSockets handOver(MenuScreen menuScreen, String id, String username, String email, String phone, String validated) {
+        WebSockets webSockets = preconnected != null ? preconnected : new WebSockets();
+        preconnected = null;
+        webSockets.identify(menuScreen, id, username, email, phone, validated);
+        return webSockets;
+    }
+
+    private WebSockets() {
+        registerHandlers();
+
+        // La medida de latencia de los nodos bloquea un momento: se hace en el hilo del scheduler
+        scheduler.execute(() -> {
+            endpoints.probe();
+            connectWebSocket();
+        });
+
+        scheduler.scheduleAtFixedRate(() -> {
+            sendRttPing();
+            sendTimeSync();
+            metrics.update(System.nanoTime());
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    // Datos del usuario ya identificado. Si el servidor ya nos ha dado el clientId, se envían ahora.
+    private synchronized void identify(MenuScreen menuScreen, String id, String username, String email, String phone, String validated) {
         this.menuScreen = menuScreen;
         this.id = id;
         this.username = username;
         this.email = email;
         this.phone = phone;
         this.validated = validated;
+        identified = true;
+
+        if (totalClients >= 0) menuScreen.updatePlayersCount(totalClients);
+        if (pendingUserInfoClientId != null) {
+            sendUserInformation(pendingUserInfoClientId);
+            pendingUserInfoClientId = null;
+        }
+    }
+
+    // El perfil con el que se entró venía de la caché y ha cambiado: se reenvía si ya se había enviado
+    public synchronized void updateProfile(String username, String email, String phone, String validated) {
+        this.username = username;
+        this.email = email;
+        this.phone = phone;
+        this.validated = validated;
+        if (playerId != null && pendingUserInfoClientId == null) sendUserInformation(playerId);
+    }
 
-        connectWebSocket();
+    private synchronized void sendUserInformationWhenIdentified(String clientId) {
+        if (identified) {
+            sendUserInformation(clientId);
+        } else {
+            pendingUserInfoClientId = clientId;
+        }
     }
 
     private void connectWebSocket() {
+        if (disposed) return;
         try {
-            URI serverUri = new URI("wss://bandera3.ieti.site");
+            URI serverUri = endpoints.current();
+
+            Draft_6455 draft = NetworkConfig.perMessageDeflate
+                    ? new Draft_6455(new MeteredDeflateExtension(transportStats, NetworkConfig.deflateThreshold))
+                    : new Draft_6455();
 
-            webSocketClient = new WebSocketClient(serverUri) {
+            webSocketClient = new WebSocketClient(serverUri, draft, Collections.emptyMap(), NetworkConfig.connectTimeoutMs) {
                 @Override
                 public void onOpen(ServerHandshake handshake) {
-                    System.out.println("Conectado al servidor WebSocket");
+                    System.out.println("Conectado al servidor WebSocket " + serverUri + " en " + (System.nanoTime() - connectStartedAt) / 1000000 + " ms");
+                    opened = true;
+                    reconnectAttempts = 0;
+                    warnedDisconnected = false;
 
-                    // Crear el JSON que quieres enviar
-                    JSONObject json = new JSONObject();
-                    try {
-                        json.put("type", "join");
-                    } catch (JSONException e) {
-                        System.err.println("Error creando JSON de conexión: " + e.getMessage());
-                    }
+                    // Los deltas de la conexión anterior ya no sirven: hay que esperar un keyframe
+                    snapshotDecoder.reset();
+                    metrics.resetTicks();
+                    clock.reset();
 
-                    // Enviar el JSON como String
-                    sendMessage(json.toString());
+                    resuming = resumeToken != null && playerId != null;
+                    if (resuming) {
+                        sendResume();
+                    } else {
+                        sendJoin();
+                    }
+                    sendTimeSync();
                 }
 
                 @Override
                 public void onMessage(String message) {
                     try {
-                        JSONObject jsonMessage = new JSONObject(message);
-                        String messageType = jsonMessage.getString("type");
-
-                        switch (messageType) {
-                            case "welcome":
-                                playerId = jsonMessage.getString("id");
-                                handleUpdateClientsConnected(jsonMessage);
-                                break;
-                            case "newClient":
-                                handleUpdateClientsConnected(jsonMessage);
-                                break;
-                            case "clientDisconnected":
-                                handleUpdateClientsConnected(jsonMessage);
-                                break;
-                            case "update":
-                                handleUpdate(jsonMessage);
-                                break;
-                            case "performAttack":
-                                handleAttack(jsonMessage);
-                                break;
-                            case "clientId":
-                                String clientId = jsonMessage.getString("id");
-                                sendUserInformation(clientId);
-                            default:
-                                System.out.println("Tipo de mensaje desconocido: " + messageType);
-                                break;
+                        String messageType = dispatcher.dispatch(message);
+                        if (messageType == null) {
+                            messageType = dispatcher.unknownType();
+                            System.out.println("Tipo de mensaje desconocido: " + messageType);
                         }
+                        transportStats.messageReceived(messageType, message.length());
                     } catch (Exception e) {
                         System.err.println("Error al procesar el mensaje recibido: " + e.getMessage());
                     }
                 }
 
+                @Override
+                public void onMessage(ByteBuffer bytes) {
+                    try {
+                        transportStats.messageReceived("snapshot", bytes.remaining());
+                        long start = System.nanoTime();
+                        handleSnapshot(bytes);
+                        metrics.recordDecode("snapshot", System.nanoTime() - start);
+                    } catch (Exception e) {
+                        System.err.println("Error al decodificar el snapshot: " + e.getMessage());
+                    }
+                }
+
+                @Override
+                public void onWebsocketPong(WebSocket conn, Framedata frame) {
+                    super.onWebsocketPong(conn, frame);
+                    ByteBuffer payload = frame.getPayloadData();
+                    if (payload.remaining() == 9 && payload.get(payload.position()) == RTT_PING_MARKER) {
+                        long sentAt = payload.getLong(payload.position() + 1);
+                        metrics.recordRtt((System.nanoTime() - sentAt) / 1e6f);
+                    }
+                }
+
                 @Override
                 public void onClose(int code, String reason, boolean remote) {
                     System.out.println("Conexión cerrada. Código: " + code + ", Motivo: " + reason);
+                    System.out.print(transportStats.summary());
+                    // Lo pendiente era para la conexión perdida; al reconectar se vuelve a mandar join/resume
+                    outboundQueue.clear();
+                    if (!disposed) {
+                        scheduleReconnect();
+                    }
                 }
 
                 @Override
@@ -103,6 +280,16 @@ public class WebSockets {
                 }
             };
 
+            // Ping/pong para detectar conexiones muertas (p. ej. al cambiar de Wi-Fi a datos)
+            webSocketClient.setConnectionLostTimeout(NetworkConfig.heartbeatSeconds);
+
+            // Opciones del socket; la factoría compartida permite reanudar la sesión TLS al reconectar
+            webSocketClient.setTcpNoDelay(NetworkConfig.tcpNoDelay);
+            webSocketClient.setReuseAddr(NetworkConfig.socketReuseAddress);
+            if (serverUri.getScheme().equals("wss")) webSocketClient.setSocketFactory(TunedSocketFactory.shared());
+
+            connectStartedAt = System.nanoTime();
+            opened = false;
             webSocketClient.connect();
 
         } catch (Exception e) {
@@ -110,32 +297,360 @@ public class WebSockets {
         }
     }
 
-    private void handleUpdateClientsConnected(JSONObject jsonMessage) throws JSONException {
-        int totalClients = jsonMessage.getInt("totalClients");
+    // Backoff exponencial con jitter para no reconectar todos los clientes a la vez
+    private void scheduleReconnect() {
+        long delay = Math.min(NetworkConfig.reconnectMaxDelayMs,
+                NetworkConfig.reconnectBaseDelayMs << Math.min(reconnectAttempts, 16));
+        delay = delay / 2 + (long) (Math.random() * (delay / 2));
+        reconnectAttempts++;
+
+        System.out.println("Reconectando en " + delay + " ms (intento " + reconnectAttempts + ")");
+        try {
+            scheduler.schedule(() -> {
+                // reconnect() no se puede llamar desde el hilo del propio WebSocket
+                if (disposed) return;
+                // Si ni siquiera se pudo abrir la conexión con este nodo se prueba con el siguiente
+                if (!opened && endpoints.failover()) {
+                    connectWebSocket();
+                    return;
+                }
+                connectStartedAt = System.nanoTime();
+                opened = false;
+                webSocketClient.reconnect();
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.err.println("No se pudo programar la reconexión: " + e.getMessage());
+        }
+    }
+
+    private void sendJoin() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("type", "join");
+            json.put("snapshotCodec", NetworkConfig.binarySnapshots ? "binary" : "json");
+            putInputCodec(json);
+        } catch (JSONException e) {
+            System.err.println("Error creando JSON de conexión: " + e.getMessage());
+        }
+        sendMessage(json.toString());
+    }
+
+    private void sendResume() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("type", "resume");
+            json.put("id", playerId);
+            json.put("resumeToken", resumeToken);
+            json.put("snapshotCodec", NetworkConfig.binarySnapshots ? "binary" : "json");
+            putInputCodec(json);
+        } catch (JSONException e) {
+            System.err.println("Error creando JSON de reconexión: " + e.getMessage());
+        }
+        sendMessage(json.toString());
+    }
+
+    // Formato de la entrada: el servidor necesita la escala de los ejes para decodificar InputPacket
+    private void putInputCodec(JSONObject json) throws JSONException {
+        json.put("inputCodec", InputPacket.isEnabled() ? "binary" : "json");
+        json.put("inputScale", NetworkConfig.inputQuantization);
+    }
+
+    // Cada handler lee solo los campos que usa; el resto del mensaje se salta sin convertirlo
+    private void registerHandlers() {
+        dispatcher.register("welcome", message -> {
+            String welcomeId = null;
+            int totalClients = -1;
+            while (message.nextField()) {
+                if (message.fieldIs("id")) welcomeId = message.readString();
+                else if (message.fieldIs("totalClients")) totalClients = (int) message.readLong();
+            }
+            // Al retomar la sesión se conserva el id anterior
+            if (!resuming) playerId = welcomeId;
+            updateClientsConnected(totalClients);
+        });
+
+        MessageDispatcher.Handler clientsHandler = message -> {
+            if (message.findField("totalClients")) updateClientsConnected((int) message.readLong());
+        };
+        dispatcher.register("newClient", clientsHandler);
+        dispatcher.register("clientDisconnected", clientsHandler);
+
+        dispatcher.register("clientId", message -> {
+            String clientId = null;
+            String token = null;
+            while (message.nextField()) {
+                if (message.fieldIs("id")) clientId = message.readString();
+                else if (message.fieldIs("resumeToken")) token = message.readString();
+            }
+            if (resuming) {
+                // Solo sirve si el servidor no acepta el resume
+                pendingClientId = clientId;
+                pendingResumeToken = token;
+            } else {
+                resumeToken = token;
+                sendUserInformationWhenIdentified(clientId);
+            }
+        });
+
+        dispatcher.register("joinAck", message -> {
+            if (message.findField("snapshotCodec")) {
+                System.out.println("Formato de snapshot: " + message.readString());
+            }
+        });
+
+        dispatcher.register("resumed", message -> {
+            resuming = false;
+            sessionEpoch++;
+            System.out.println("Sesión retomada: " + playerId);
+        });
+
+        dispatcher.register("resumeFailed", message -> {
+            // La sesión ya no existe en el servidor: se sigue como un cliente nuevo
+            System.out.println("No se pudo retomar la sesión, conectando como cliente nuevo");
+            resuming = false;
+            playerId = pendingClientId;
+            resumeToken = pendingResumeToken;
+            sendJoin();
+            if (pendingClientId != null) sendUserInformationWhenIdentified(pendingClientId);
+        });
+
+        dispatcher.register("update", message -> {
+            // El decodificador recorre el mismo lector (los clientes binarios no pasan por aquí)
+            long start = System.nanoTime();
+            handleUpdate(message);
+            metrics.recordDecode("update", System.nanoTime() - start);
+        });
+
+        dispatcher.register("timeSync", message -> {
+            double t0 = -1, t1 = 0, t2 = 0;
+            while (message.nextField()) {
+                if (message.fieldIs("t0")) t0 = message.readDouble();
+                else if (message.fieldIs("t1")) t1 = message.readDouble();
+                else if (message.fieldIs("t2")) t2 = message.readDouble();
+            }
+            if (t0 >= 0) clock.onResponse(t0, t1, t2);
+        });
+
+        dispatcher.register("performAttack", message -> {
+            String attacker = null;
+            String viewState = null;
+            long serverTime = -1;
+            while (message.nextField()) {
+                if (message.fieldIs("attacker")) attacker = message.readString();
+                else if (message.fieldIs("viewState")) viewState = message.readString();
+                else if (message.fieldIs("serverTime")) serverTime = message.readLong();
+            }
+            GameScreen screen = gameScreen;
+            if (screen != null && attacker != null) {
+                screen.handleAttack(attacker, viewState, localTimeOf(serverTime, System.nanoTime()));
+            }
+        });
+
+        dispatcher.register("countdown", message -> {
+            GameScreen screen = gameScreen;
+            if (screen != null && message.findField("timeLeft")) screen.onCountdown((int) Math.ceil(message.readDouble()));
+        });
+
+        dispatcher.register("gameStarted", message -> {
+            GameScreen screen = gameScreen;
+            if (screen != null) screen.onGameStarted();
+        });
+
+        dispatcher.register("joinedLobby", message -> {
+            GameScreen screen = gameScreen;
+            if (screen != null && message.findField("team")) screen.onJoinedLobby(message.readString());
+        });
+
+        dispatcher.register("joinedAsSpectator", message -> {
+            GameScreen screen = gameScreen;
+            if (screen != null) screen.onJoinedAsSpectator();
+        });
+
+        dispatcher.register("playerHit", message -> {
+            String attacker = null;
+            String victim = null;
+            while (message.nextField()) {
+                if (message.fieldIs("attacker")) attacker = message.readString();
+                else if (message.fieldIs("victim")) victim = message.readString();
+            }
+            GameScreen screen = gameScreen;
+            if (screen != null) screen.onPlayerHit(attacker, victim);
+        });
+
+        // El servidor ya ha bloqueado el movimiento y la predicción aplica la misma regla: no hay nada que leer
+        dispatcher.register("collision", message -> { });
+
+        dispatcher.register("gameOver", message -> {
+            String team = null;
+            String text = null;
+            while (message.nextField()) {
+                if (message.fieldIs("team")) team = message.readString();
+                else if (message.fieldIs("message")) text = message.readString();
+            }
+            GameScreen screen = gameScreen;
+            if (screen != null) screen.onGameOver(team, text);
+        });
+    }
+
+    private void updateClientsConnected(int totalClients) {
         System.out.println("Total de jugadores conectados: " + totalClients);
+        if (totalClients < 0) return;
+
+        // Antes de identify() no hay menú: se guarda para dárselo al crearlo
+        this.totalClients = totalClients;
+        MenuScreen menu = menuScreen;
+        if (menu != null) {
+            menu.updatePlayersCount(totalClients);
+        }
+    }
+
+    private void handleUpdate(MessageReader message) {
+        // El JSON se vuelca una sola vez al mismo estado que usan los snapshots binarios
+        if (snapshotDecoder.decodeJson(message, snapshotState)) {
+            publishSnapshot();
+        }
+    }
 
-        if (menuScreen != null) {
-            menuScreen.updatePlayersCount(totalClients);
+    private void handleSnapshot(ByteBuffer bytes) {
+        if (snapshotDecoder.decode(bytes, snapshotState)) {
+            publishSnapshot();
         }
     }
 
-    private void handleUpdate(JSONObject jsonMessage) throws JSONException {
-        gameScreen.paintEntities(jsonMessage);
+    // Anota cuándo ha llegado el snapshot y cuándo se generó, en el reloj local, y lo publica al render
+    private void publishSnapshot() {
+        metrics.recordTick(snapshotState.tick);
+        long now = System.nanoTime();
+        snapshotState.receivedAt = now;
+        snapshotState.producedAt = localTimeOf(snapshotState.serverTime, now);
+        if (snapshotState.producedAt != now) {
+            metrics.recordTransit((now - snapshotState.producedAt) / 1e6f);
+        }
+        snapshots.publish(snapshotState);
     }
 
-    private void handleAttack(JSONObject jsonMessage) throws JSONException {
-        gameScreen.handleAttack(jsonMessage);
+    // System.nanoTime() en el que el servidor generó algo con esa hora; sin reloj sincronizado, la llegada
+    private long localTimeOf(long serverTime, long receivedAt) {
+        if (serverTime < 0 || !clock.isSynced()) return receivedAt;
+        // Un error de estimación no puede dejarlo en el futuro
+        return Math.min(receivedAt, clock.toLocalNanos(clock.unwrap(serverTime)));
     }
 
+    // Muestra para ClockSync; va como crítico para no esperar en la cola (eso sesgaría el offset)
+    private void sendTimeSync() {
+        if (webSocketClient == null || !webSocketClient.isOpen()) return;
+        JSONObject json = new JSONObject();
+        try {
+            json.put("type", "timeSync");
+            json.put("t0", ClockSync.localMillis());
+        } catch (JSONException e) {
+            System.err.println("Error creando JSON de sincronización: " + e.getMessage());
+            return;
+        }
+        sendMessage(json.toString());
+    }
+
+    // Los mensajes sueltos salen enseguida (junto con lo que hubiera pendiente)
     public void sendMessage(String message) {
         if (webSocketClient != null && webSocketClient.isOpen()) {
-            webSocketClient.send(message);
+            String type = typeOf(message);
+            outboundQueue.enqueue(type, priorityOf(type), message);
+            outboundQueue.flush();
+        } else {
+            warnDisconnected();
+        }
+    }
+
+    // Cierra el mensaje del writer y lo encola ya codificado en UTF-8, sin pasar por String.
+    // La cola copia los bytes, así que el writer se puede reutilizar en cuanto vuelve.
+    // No sale hasta flush(): el render encola todo lo del tick y lo envía en un solo frame.
+    public void sendMessage(MessageWriter message) {
+        if (webSocketClient != null && webSocketClient.isOpen()) {
+            ByteBuffer payload = message.end();
+            outboundQueue.enqueue(message.getType(), priorityOf(message.getType()), payload, false);
         } else {
+            warnDisconnected();
+        }
+    }
+
+    // Entrada en binario (InputPacket), con la misma prioridad que updateMovement. Sale con flush().
+    public void sendInput(ByteBuffer packet) {
+        if (webSocketClient != null && webSocketClient.isOpen()) {
+            outboundQueue.enqueue("updateMovement", OutboundQueue.MOVEMENT, packet, true);
+        } else {
+            warnDisconnected();
+        }
+    }
+
+    // Envía de una vez lo encolado con sendMessage(MessageWriter) en este tick
+    public void flush() {
+        outboundQueue.flush();
+    }
+
+    // Ataques y mensajes de control nunca se descartan; del movimiento solo importa el último
+    private static int priorityOf(String type) {
+        if (type == null) return OutboundQueue.NORMAL;
+        switch (type) {
+            case "attack":
+            case "join":
+            case "resume":
+            case "userInfo":
+            case "addClientToLobby":
+            case "timeSync":
+                return OutboundQueue.CRITICAL;
+            case "updateMovement":
+                return OutboundQueue.MOVEMENT;
+            default:
+                return OutboundQueue.NORMAL;
+        }
+    }
+
+    // Solo desde el hilo de la cola de salida. Va sincronizado para que TransportStats asigne cada frame a su mensaje.
+    private synchronized void writeFrame(ByteBuffer frame, boolean binary, Array<String> types, IntArray lengths) {
+        int length = frame.remaining();
+        DataFrame dataFrame = binary ? binaryFrame : textFrame;
+        dataFrame.setFin(true);
+        dataFrame.setRSV1(false); // La extensión de compresión lo marca en el frame anterior
+        dataFrame.setPayload(frame);
+        webSocketClient.sendFrame(dataFrame);
+        transportStats.messagesSent(types, lengths, length);
+    }
+
+    // Ping propio con la hora de envío: el servidor devuelve el mismo payload en el pong
+    private void sendRttPing() {
+        if (webSocketClient == null || !webSocketClient.isOpen()) return;
+        try {
+            ByteBuffer payload = ByteBuffer.allocate(9);
+            payload.put(RTT_PING_MARKER).putLong(System.nanoTime()).flip();
+            PingFrame ping = new PingFrame();
+            ping.setPayload(payload);
+            webSocketClient.sendFrame(ping);
+        } catch (Exception e) {
+            System.err.println("Error enviando ping: " + e.getMessage());
+        }
+    }
+
+    // Tipo de un mensaje JSON ya serializado, sin parsearlo entero
+    private static String typeOf(String message) {
+        int key = message.indexOf("\"type\"");
+        if (key == -1) return null;
+        int start = message.indexOf('"', message.indexOf(':', key) + 1);
+        int end = start == -1 ? -1 : message.indexOf('"', start + 1);
+        return end == -1 ? null : message.substring(start + 1, end);
+    }
+
+    // Un aviso por corte, no uno por frame mientras se reconecta
+    private void warnDisconnected() {
+        if (!warnedDisconnected) {
+            warnedDisconnected = true;
             System.out.println("No se pudo enviar el mensaje. WebSocket no conectado.");
         }
     }
 
     public void dispose() {
+        disposed = true;
+        scheduler.shutdownNow();
+        outboundQueue.dispose();
         if (webSocketClient != null) {
             webSocketClient.close();
         }
@@ -145,10 +660,41 @@ public class WebSockets {
         this.gameScreen = gameScreen;
     }
 
+    // Solo desde el hilo de render: último snapshot completo (o null si aún no ha llegado ninguno)
+    public GameState acquireSnapshot() {
+        return snapshots.acquire();
+    }
+
+    public TransportStats getTransportStats() {
+        return transportStats;
+    }
+
+    // Mensajes pendientes de enviar (incluido el último movimiento, si lo hay)
+    public int getOutboundQueueDepth() {
+        return outboundQueue.getDepth();
+    }
+
+    public NetworkMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Vuelca el informe de métricas a un fichero local y devuelve su ruta
+    public String dumpMetrics() {
+        FileHandle file = Gdx.files.local("network-metrics-" + System.currentTimeMillis() + ".txt");
+        metrics.dump(file);
+        System.out.println("Métricas de red guardadas en " + file.path());
+        return file.path();
+    }
+
     public String getPlayerId() {
         return playerId;
     }
 
+    // Cambia cada vez que se retoma la sesión tras una reconexión
+    public int getSessionEpoch() {
+        return sessionEpoch;
+    }
+
     private void sendUserInformation(String clientId) {
         // Crear un objeto JSON con la información adicional del usuario
         JSONObject userInformation = new JSONObject();
@@ -162,7 +708,7 @@ public class WebSockets {
             userInformation.put("validated", this.validated);
 
             // Enviar la información adicional al servidor
-            webSocketClient.send(userInformation.toString());
+            sendMessage(userInformation.toString());
             System.out.println("Sent user info: " + userInformation.toString());
 
         } catch (JSONException e) {
@@ -0,0 +1,240 @@
+package com.project.clases;
+
+import com.badlogic.gdx.Gdx;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+// Cliente de la API compartido por toda la aplicación. Antes cada llamada creaba su propio OkHttpClient
+// y pagaba DNS, TCP y TLS desde cero; con uno solo las conexiones se reutilizan (keep-alive, y HTTP/2 por
+// ALPN para varias peticiones a la vez sobre la misma) y las respuestas cacheables se guardan en disco
+// según sus cabeceras. Los callbacks llegan ya en el hilo de render (Gdx.app.postRunnable).
+public class ApiClient {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final long CACHE_BYTES = 5 * 1024 * 1024;
+
+    public interface ApiCallback<T> {
+        void onSuccess(T body);
+
+        // status es 0 si no ha habido respuesta (error de red); error es el campo "error" del JSON si lo trae
+        void onError(int status, String error);
+    }
+
+    // Respuesta de una petición condicional (getJsonIfChanged)
+    public interface RevalidateCallback {
+        // Contenido nuevo (o no se mandó ETag) con el ETag que lo identifica, null si el servidor no lo manda
+        void onChanged(JSONObject body, String etag);
+
+        // 304: la copia que tiene el que llama sigue valiendo
+        void onNotModified();
+
+        void onError(int status, String error);
+    }
+
+    private interface BodyParser<T> {
+        T parse(String body) throws Exception;
+    }
+
+    private static OkHttpClient client;
+
+    private ApiClient() {}
+
+    public static synchronized OkHttpClient http() {
+        if (client == null) {
+            client = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .cache(new Cache(Gdx.files.local("http-cache").file(), CACHE_BYTES))
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(15, TimeUnit.SECONDS)
+                    .build();
+        }
+        return client;
+    }
+
+    // Abre la conexión con la API antes de la primera llamada real (el login la encuentra ya lista)
+    public static void warmUp() {
+        Request request = new Request.Builder().url(NetworkConfig.apiBaseUrl + "/api/terms").head().build();
+        http().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                System.out.println("No se pudo precalentar la conexión HTTP: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+            }
+        });
+    }
+
+    public static void getJson(String path, ApiCallback<JSONObject> callback) {
+        call(new Request.Builder().url(NetworkConfig.apiBaseUrl + path).build(), JSONObject::new, callback);
+    }
+
+    // Petición condicional (If-None-Match) que no pasa por la caché de disco: es el que llama quien guarda
+    // el cuerpo y el ETag, y decide cuándo (p. ej. el perfil solo cuando el login ya se ha aceptado, ver
+    // ProfileCache). sessionToken y etag pueden ser null.
+    public static void getJsonIfChanged(String path, String sessionToken, String etag, RevalidateCallback callback) {
+        Request.Builder builder = new Request.Builder().url(NetworkConfig.apiBaseUrl + path)
+                .cacheControl(new CacheControl.Builder().noStore().build());
+        if (sessionToken != null) builder.header("Authorization", "Bearer " + sessionToken);
+        if (etag != null) builder.header("If-None-Match", etag);
+        Request request = builder.build();
+
+        http().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                System.out.println("❌ GET " + path + ": " + e.getMessage());
+                Gdx.app.postRunnable(() -> callback.onError(0, e.getMessage()));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    if (r.code() == 304) {
+                        Gdx.app.postRunnable(callback::onNotModified);
+                        return;
+                    }
+                    String text = r.body().string();
+                    if (r.isSuccessful()) {
+                        JSONObject body = new JSONObject(text);
+                        String newEtag = r.header("ETag");
+                        Gdx.app.postRunnable(() -> callback.onChanged(body, newEtag));
+                    } else {
+                        String error = errorOf(text);
+                        Gdx.app.postRunnable(() -> callback.onError(r.code(), error));
+                    }
+                } catch (Exception e) {
+                    System.out.println("❌ Respuesta no válida de " + path + ": " + e.getMessage());
+                    Gdx.app.postRunnable(() -> callback.onError(response.code(), null));
+                }
+            }
+        });
+    }
+
+    public static void getText(String path, ApiCallback<String> callback) {
+        call(new Request.Builder().url(NetworkConfig.apiBaseUrl + path).build(), body -> body, callback);
+    }
+
+    // Versiones con caché para recursos públicos que cambian poco (términos): se entrega primero la copia
+    // guardada en disco y después se revalida con el servidor, que contesta 304 si no ha cambiado
+    // (OkHttp añade If-None-Match / If-Modified-Since con el ETag y la fecha guardados).
+    // onSuccess se llama una segunda vez solo si el contenido ha cambiado, y si ya se había entregado la
+    // copia un fallo de red no llega a onError.
+    public static void getTextCached(String path, ApiCallback<String> callback) {
+        cachedThenNetwork(path, body -> body, callback);
+    }
+
+    public static void postJson(String path, JSONObject payload, ApiCallback<JSONObject> callback) {
+        RequestBody body = RequestBody.create(payload.toString(), JSON);
+        call(new Request.Builder().url(NetworkConfig.apiBaseUrl + path).post(body).build(), JSONObject::new, callback);
+    }
+
+    private static <T> void call(Request request, BodyParser<T> parser, ApiCallback<T> callback) {
+        http().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                System.out.println("❌ " + request.method() + " " + request.url().encodedPath() + ": " + e.getMessage());
+                Gdx.app.postRunnable(() -> callback.onError(0, e.getMessage()));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // El cuerpo se lee y se parsea aquí, fuera del hilo de render
+                try (Response r = response) {
+                    String text = r.body().string();
+                    if (r.isSuccessful()) {
+                        T body = parser.parse(text);
+                        Gdx.app.postRunnable(() -> callback.onSuccess(body));
+                    } else {
+                        String error = errorOf(text);
+                        Gdx.app.postRunnable(() -> callback.onError(r.code(), error));
+                    }
+                } catch (Exception e) {
+                    System.out.println("❌ Respuesta no válida de " + request.url().encodedPath() + ": " + e.getMessage());
+                    Gdx.app.postRunnable(() -> callback.onError(response.code(), null));
+                }
+            }
+        });
+    }
+
+    private static <T> void cachedThenNetwork(String path, BodyParser<T> parser, ApiCallback<T> callback) {
+        Request cacheOnly = new Request.Builder().url(NetworkConfig.apiBaseUrl + path).cacheControl(CacheControl.FORCE_CACHE).build();
+        http().newCall(cacheOnly).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                revalidate(path, parser, callback, false);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                boolean delivered = false;
+                // Sin copia guardada OkHttp contesta 504 sin tocar la red
+                try (Response r = response) {
+                    if (r.isSuccessful()) {
+                        T body = parser.parse(r.body().string());
+                        Gdx.app.postRunnable(() -> callback.onSuccess(body));
+                        delivered = true;
+                    }
+                } catch (Exception e) {
+                    System.out.println("Copia en caché no válida de " + path + ": " + e.getMessage());
+                }
+                revalidate(path, parser, callback, delivered);
+            }
+        });
+    }
+
+    private static <T> void revalidate(String path, BodyParser<T> parser, ApiCallback<T> callback, boolean delivered) {
+        Request request = new Request.Builder().url(NetworkConfig.apiBaseUrl + path).build();
+        http().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                System.out.println("❌ GET " + path + ": " + e.getMessage());
+                if (!delivered) Gdx.app.postRunnable(() -> callback.onError(0, e.getMessage()));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    Response network = r.networkResponse();
+                    if (delivered && network != null && network.code() == 304) return; // Sigue valiendo la copia
+                    String text = r.body().string();
+                    if (r.isSuccessful()) {
+                        T body = parser.parse(text);
+                        Gdx.app.postRunnable(() -> callback.onSuccess(body));
+                    } else if (!delivered) {
+                        String error = errorOf(text);
+                        Gdx.app.postRunnable(() -> callback.onError(r.code(), error));
+                    }
+                } catch (Exception e) {
+                    System.out.println("❌ Respuesta no válida de " + path + ": " + e.getMessage());
+                    if (!delivered) Gdx.app.postRunnable(() -> callback.onError(response.code(), null));
+                }
+            }
+        });
+    }
+
+    private static String errorOf(String body) {
+        try {
+            return new JSONObject(body).optString("error", null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
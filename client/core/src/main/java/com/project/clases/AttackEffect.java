@@ -2,16 +2,18 @@ package com.project.clases;
 
 public class AttackEffect {
     public float x, y;
-    public String direction;
+    public byte direction; // Código de GameState (STATE_RIGHT, STATE_LEFT, STATE_TOP, STATE_BOTTOM)
     public float timer;
     public String attackerId;
-    public String playerTeam;
+    public int attackerHandle;
+    public byte playerTeam; // Código de GameState (TEAM_BLUE, TEAM_RED...)
 
-    public AttackEffect(float x, float y, String direction, String attackerId, String playerTeam) {
+    public AttackEffect(float x, float y, byte direction, String attackerId, int attackerHandle, byte playerTeam) {
         this.x = x;
         this.y = y;
         this.direction = direction;
         this.attackerId = attackerId;
+        this.attackerHandle = attackerHandle;
         this.playerTeam = playerTeam;
         this.timer = 0f;
     }
@@ -21,9 +23,9 @@ public class AttackEffect {
         return "AttackEffect{" +
                "x=" + x +
                ", y=" + y +
-               ", direction='" + direction + '\'' +
+               ", direction='" + GameState.stateName(direction) + '\'' +
                ", timer=" + timer +
-               ", team=" + playerTeam +
+               ", team=" + GameState.teamName(playerTeam) +
                '}';
     }
 }
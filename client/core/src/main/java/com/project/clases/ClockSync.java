@@ -0,0 +1,153 @@
+package com.project.clases;
+
+// Estimación del reloj del servidor (utilsClock.js) sobre la propia conexión, al estilo NTP.
+// Cada muestra timeSync da t0 (envío, reloj local), t1/t2 (recepción/respuesta, reloj del servidor)
+// y t3 (llegada, reloj local):
+//
+//   rtt    = (t3 - t0) - (t2 - t1)
+//   offset = ((t1 - t0) + (t2 - t3)) / 2      hora del servidor = hora local + offset
+//
+// De las últimas muestras solo cuentan las de RTT cercano al mínimo (las otras han esperado en alguna
+// cola y el offset sale sesgado). Con ellas se ajusta una recta para estimar también la deriva entre
+// relojes. El offset aplicado no salta: se corrige poco a poco (slew) salvo que el error sea grande.
+// Se alimenta desde el hilo del WebSocket y se consulta desde cualquiera.
+public class ClockSync {
+    private static final int SAMPLES = 16;
+    private static final double RTT_TOLERANCE = 1.5;       // Muestras válidas: rtt <= mínimo * 1.5 + 1 ms
+    private static final double MIN_DRIFT_SPAN_MS = 5000;  // Tiempo mínimo entre muestras para estimar la deriva
+    private static final double MAX_DRIFT = 0.001;         // 1000 ppm; más que eso es ruido, no deriva
+    private static final double STEP_THRESHOLD_MS = 50;    // Errores mayores se corrigen de golpe
+    private static final double SLEW_MS = 2000;            // Los errores menores se corrigen en ~2 s
+    private static final double MAX_SLEW = 0.005;          // ...pero como mucho 5 ms por segundo
+
+    private static final double WRAP = 4294967296.0;        // Los snapshots binarios llevan la hora en 32 bits
+
+    private final double[] sampleTimes = new double[SAMPLES];   // t3, ms locales
+    private final double[] sampleOffsets = new double[SAMPLES];
+    private final double[] sampleRtts = new double[SAMPLES];
+    private int sampleCount = 0;
+    private int nextSample = 0;
+
+    // Offset aplicado: appliedOffset en appliedAt (ms locales) y pendiente (deriva + corrección)
+    private boolean synced = false;
+    private double appliedOffset = 0;
+    private double appliedAt = 0;
+    private double appliedSlope = 0;
+
+    private double drift = 0;
+    private double lastRtt = -1;
+
+    // Hora local en ms (monótona, la misma base que System.nanoTime)
+    public static double localMillis() {
+        return System.nanoTime() / 1e6;
+    }
+
+    public synchronized void onResponse(double t0, double t1, double t2) {
+        double t3 = localMillis();
+        double rtt = (t3 - t0) - (t2 - t1);
+        if (rtt < 0) return; // Respuesta de antes de un reset o reloj incoherente
+        double offset = ((t1 - t0) + (t2 - t3)) / 2;
+        lastRtt = rtt;
+
+        sampleTimes[nextSample] = t3;
+        sampleOffsets[nextSample] = offset;
+        sampleRtts[nextSample] = rtt;
+        nextSample = (nextSample + 1) % SAMPLES;
+        if (sampleCount < SAMPLES) sampleCount++;
+
+        estimate(t3);
+    }
+
+    private void estimate(double now) {
+        double minRtt = Double.MAX_VALUE;
+        for (int i = 0; i < sampleCount; i++) minRtt = Math.min(minRtt, sampleRtts[i]);
+        double limit = minRtt * RTT_TOLERANCE + 1;
+
+        // Recta por mínimos cuadrados de offset frente a hora local, con las muestras válidas
+        int n = 0;
+        double meanTime = 0, meanOffset = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (sampleRtts[i] > limit) continue;
+            meanTime += sampleTimes[i];
+            meanOffset += sampleOffsets[i];
+            n++;
+        }
+        meanTime /= n;
+        meanOffset /= n;
+
+        double firstTime = Double.MAX_VALUE, lastTime = -Double.MAX_VALUE;
+        double covariance = 0, variance = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (sampleRtts[i] > limit) continue;
+            double dt = sampleTimes[i] - meanTime;
+            covariance += dt * (sampleOffsets[i] - meanOffset);
+            variance += dt * dt;
+            firstTime = Math.min(firstTime, sampleTimes[i]);
+            lastTime = Math.max(lastTime, sampleTimes[i]);
+        }
+        if (n >= 3 && lastTime - firstTime >= MIN_DRIFT_SPAN_MS && variance > 0) {
+            drift = Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, covariance / variance));
+        }
+        double estimated = meanOffset + drift * (now - meanTime);
+
+        // Primer ajuste o error grande (p. ej. el servidor se ha reiniciado): se salta directamente
+        double error = estimated - offsetAt(now);
+        if (!synced || Math.abs(error) > STEP_THRESHOLD_MS) {
+            appliedOffset = estimated;
+            appliedAt = now;
+            appliedSlope = drift;
+            synced = true;
+            return;
+        }
+        appliedOffset = offsetAt(now);
+        appliedAt = now;
+        appliedSlope = drift + Math.max(-MAX_SLEW, Math.min(MAX_SLEW, error / SLEW_MS));
+    }
+
+    private double offsetAt(double localMs) {
+        return appliedOffset + appliedSlope * (localMs - appliedAt);
+    }
+
+    // Tras reconectar las muestras anteriores ya no valen (puede ser otro proceso del servidor).
+    // El offset aplicado se mantiene hasta la primera muestra nueva.
+    public synchronized void reset() {
+        sampleCount = 0;
+        nextSample = 0;
+        drift = 0;
+    }
+
+    public synchronized boolean isSynced() {
+        return synced && sampleCount > 0;
+    }
+
+    public synchronized double toServerMillis(long localNanos) {
+        double local = localNanos / 1e6;
+        return local + offsetAt(local);
+    }
+
+    public double serverMillis() {
+        return toServerMillis(System.nanoTime());
+    }
+
+    // Hora local (System.nanoTime) que corresponde a una hora del servidor
+    public synchronized long toLocalNanos(double serverMs) {
+        double local = serverMs - offsetAt(serverMs - appliedOffset);
+        return (long) (local * 1e6);
+    }
+
+    // Completa una hora de 32 bits (snapshots binarios) con la vuelta más cercana a la hora actual del servidor
+    public synchronized double unwrap(long serverMs32) {
+        double now = toServerMillis(System.nanoTime());
+        double time = Math.floor(now / WRAP) * WRAP + serverMs32;
+        if (time - now > WRAP / 2) time -= WRAP;
+        else if (now - time > WRAP / 2) time += WRAP;
+        return time;
+    }
+
+    public synchronized double getOffset() {return offsetAt(localMillis());}
+
+    // Deriva estimada entre relojes, en partes por millón
+    public synchronized double getDriftPpm() {return drift * 1e6;}
+
+    public synchronized double getLastRtt() {return lastRtt;}
+}
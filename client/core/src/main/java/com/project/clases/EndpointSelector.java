@@ -0,0 +1,188 @@
+package com.project.clases;
+
+import com.badlogic.gdx.utils.Array;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.PingFrame;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Elección del nodo del servidor de juego entre los de NetworkConfig.gameEndpoints.
+// Antes de conectar se abre a la vez una conexión de medida a cada nodo (ruta /probe: el servidor solo
+// contesta los ping y no la cuenta como jugador), se mandan probePings ping seguidos y los nodos se ordenan
+// por RTT medio + 2 × jitter. Si la conexión con el elegido falla se pasa al siguiente de la lista; cuando
+// han fallado todos se vuelve a empezar por el mejor.
+public class EndpointSelector {
+    private static final byte PROBE_MARKER = 'P';
+    private static final float JITTER_WEIGHT = 2f;
+
+    private static class Endpoint {
+        final URI uri;
+        float rtt = -1;    // Medio, ms; -1 si no ha contestado
+        float jitter = 0;  // Diferencia media entre RTT consecutivos, ms
+
+        Endpoint(URI uri) {
+            this.uri = uri;
+        }
+
+        float score() {
+            return rtt < 0 ? Float.MAX_VALUE : rtt + JITTER_WEIGHT * jitter;
+        }
+    }
+
+    private final Array<Endpoint> endpoints = new Array<>();
+    private int current = 0;
+
+    public EndpointSelector(String[] uris) {
+        for (String uri : uris) {
+            try {
+                endpoints.add(new Endpoint(new URI(uri.trim())));
+            } catch (Exception e) {
+                System.err.println("Nodo del servidor no válido: " + uri);
+            }
+        }
+        if (endpoints.isEmpty()) throw new IllegalArgumentException("No hay ningún nodo del servidor configurado");
+    }
+
+    // Mide todos los nodos en paralelo y los ordena. Bloquea como mucho probeTimeoutMs, así que hay que
+    // llamarlo fuera del hilo de render. Con un solo nodo no hace nada.
+    public synchronized void probe() {
+        if (endpoints.size < 2) return;
+
+        long start = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(endpoints.size);
+        Array<Probe> probes = new Array<>();
+        for (Endpoint endpoint : endpoints) {
+            try {
+                Probe probe = new Probe(endpoint.uri.resolve("/probe"), done);
+                if (endpoint.uri.getScheme().equals("wss")) probe.setSocketFactory(TunedSocketFactory.shared());
+                probes.add(probe);
+                probe.connect();
+            } catch (Exception e) {
+                probes.add(null);
+                done.countDown();
+            }
+        }
+
+        try {
+            done.await(NetworkConfig.probeTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        StringBuilder report = new StringBuilder("Nodos del servidor (" + (System.nanoTime() - start) / 1000000 + " ms):");
+        for (int i = 0; i < endpoints.size; i++) {
+            Endpoint endpoint = endpoints.get(i);
+            Probe probe = probes.get(i);
+            if (probe != null) {
+                endpoint.rtt = probe.meanRtt();
+                endpoint.jitter = probe.jitter();
+                probe.close();
+            }
+            report.append("\n  ").append(endpoint.uri).append(endpoint.rtt < 0
+                    ? "  sin respuesta"
+                    : String.format("  rtt %.1f ms  jitter %.1f ms", endpoint.rtt, endpoint.jitter));
+        }
+        System.out.println(report);
+
+        // Orden estable: con la misma puntuación (p. ej. los que no contestan) se mantiene el de la configuración
+        endpoints.sort((a, b) -> Float.compare(a.score(), b.score()));
+        current = 0;
+    }
+
+    public synchronized URI current() {
+        return endpoints.get(current).uri;
+    }
+
+    // La conexión con el nodo actual no se ha podido abrir: se pasa al siguiente. Devuelve false si solo hay uno.
+    public synchronized boolean failover() {
+        if (endpoints.size < 2) return false;
+        current = (current + 1) % endpoints.size;
+        System.out.println("Probando con otro nodo del servidor: " + current());
+        return true;
+    }
+
+    // Conexión de medida: solo manda ping y mide el tiempo hasta cada pong, uno detrás de otro
+    private static class Probe extends WebSocketClient {
+        private final CountDownLatch done;
+        private final float[] rtts = new float[NetworkConfig.probePings];
+        private int received = 0;
+        private boolean finished = false;
+
+        Probe(URI uri, CountDownLatch done) {
+            super(uri, new Draft_6455(), Collections.emptyMap(), NetworkConfig.probeTimeoutMs);
+            this.done = done;
+            setTcpNoDelay(true);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            sendProbePing();
+        }
+
+        private void sendProbePing() {
+            ByteBuffer payload = ByteBuffer.allocate(9);
+            payload.put(PROBE_MARKER).putLong(System.nanoTime()).flip();
+            PingFrame ping = new PingFrame();
+            ping.setPayload(payload);
+            sendFrame(ping);
+        }
+
+        @Override
+        public void onWebsocketPong(WebSocket conn, Framedata frame) {
+            ByteBuffer payload = frame.getPayloadData();
+            if (payload.remaining() != 9 || payload.get(payload.position()) != PROBE_MARKER) return;
+            float rtt = (System.nanoTime() - payload.getLong(payload.position() + 1)) / 1e6f;
+
+            boolean more;
+            synchronized (this) {
+                if (finished) return;
+                rtts[received++] = rtt;
+                more = received < rtts.length;
+            }
+            if (more) sendProbePing();
+            else finish();
+        }
+
+        @Override
+        public void onMessage(String message) {}
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            finish();
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            finish();
+        }
+
+        private synchronized void finish() {
+            if (finished) return;
+            finished = true;
+            done.countDown();
+        }
+
+        synchronized float meanRtt() {
+            if (received == 0) return -1;
+            float sum = 0;
+            for (int i = 0; i < received; i++) sum += rtts[i];
+            return sum / received;
+        }
+
+        synchronized float jitter() {
+            if (received < 2) return 0;
+            float sum = 0;
+            for (int i = 1; i < received; i++) sum += Math.abs(rtts[i] - rtts[i - 1]);
+            return sum / (received - 1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.clases;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+
+// Hojas de sprites del juego. Normalmente salen del atlas que genera el build (tarea packTextures de Gradle),
+// con todo en una sola textura: mapa, jugadores y oro se dibujan sin cambiar de textura y sin vaciar el
+// SpriteBatch. Si el atlas no está (p. ej. ejecutando sin haber pasado por Gradle) se cargan las hojas sueltas.
+public class GameAtlas implements Disposable {
+    public static final String ATLAS_FILE = "atlas/game.atlas";
+
+    // Nombre de la región en el atlas (el del archivo sin extensión) y hoja suelta para cuando no hay atlas
+    public static final String WARRIOR_BLUE = "Warrior_Blue";
+    public static final String WARRIOR_RED = "Warrior_Red";
+    public static final String WARRIOR_PURPLE = "Warrior_Purple";
+    public static final String WARRIOR_YELLOW = "Warrior_Yellow";
+    public static final String GOLD = "G_Spawn";
+    public static final String GRASS = "Tilemap_Flat";
+    public static final String WATER = "Water";
+    public static final String FOAM = "Foam";
+    public static final String DECO = "deco";
+    public static final String TOWERS = "towers";
+
+    private static final ObjectMap<String, String> SHEET_FILES = new ObjectMap<>();
+    static {
+        SHEET_FILES.put(WARRIOR_BLUE, "Troops/Warrior/Blue/Warrior_Blue.png");
+        SHEET_FILES.put(WARRIOR_RED, "Troops/Warrior/Red/Warrior_Red.png");
+        SHEET_FILES.put(WARRIOR_PURPLE, "Troops/Warrior/Purple/Warrior_Purple.png");
+        SHEET_FILES.put(WARRIOR_YELLOW, "Troops/Warrior/Yellow/Warrior_Yellow.png");
+        SHEET_FILES.put(GOLD, "G_Spawn.png");
+        SHEET_FILES.put(GRASS, "Tilemap_Flat.png");
+        SHEET_FILES.put(WATER, "Water.png");
+        SHEET_FILES.put(FOAM, "Foam.png");
+        SHEET_FILES.put(DECO, "deco.png");
+        SHEET_FILES.put(TOWERS, "towers.png");
+    }
+
+    private final TextureAtlas atlas;
+    private final Array<Texture> looseTextures = new Array<>();
+
+    public GameAtlas() {
+        if (Gdx.files.internal(ATLAS_FILE).exists()) {
+            atlas = new TextureAtlas(Gdx.files.internal(ATLAS_FILE));
+            System.out.println("Sprites desde el atlas (" + atlas.getTextures().size + " texturas)");
+        } else {
+            atlas = null;
+            System.out.println("No hay " + ATLAS_FILE + " (gradle packTextures): cargando las hojas sueltas");
+        }
+    }
+
+    // Frames de una hoja en una tabla [fila][columna], como estaban dibujados en la hoja original
+    public TextureRegion[][] frames(String sheet, int frameWidth, int frameHeight, int rows, int framesPerRow) {
+        TextureRegion region = sheet(sheet);
+        TextureRegion[][] frames = new TextureRegion[rows][framesPerRow];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < framesPerRow; col++) {
+                frames[row][col] = new TextureRegion(region, col * frameWidth, row * frameHeight, frameWidth, frameHeight);
+            }
+        }
+        return frames;
+    }
+
+    private TextureRegion sheet(String name) {
+        if (atlas != null) {
+            TextureRegion region = atlas.findRegion(name);
+            if (region != null) return region;
+            System.err.println("La región " + name + " no está en el atlas, cargando la hoja suelta");
+        }
+        Texture texture = new Texture(SHEET_FILES.get(name));
+        looseTextures.add(texture);
+        return new TextureRegion(texture);
+    }
+
+    @Override
+    public void dispose() {
+        if (atlas != null) atlas.dispose();
+        for (Texture texture : looseTextures) texture.dispose();
+        looseTextures.clear();
+    }
+}
@@ -0,0 +1,172 @@
+package com.project.clases;
+
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+// Estado de la partida decodificado de un snapshot. Cada jugador ocupa un handle (índice denso)
+// y sus datos viven en arrays primitivos, así el render no tiene que recorrer JSON.
+public class GameState {
+    public static final int MAX_PLAYERS = 256;
+    public static final int MAX_GOLD = 32;
+
+    // Mismo orden que los equipos del lobby en el servidor
+    public static final byte TEAM_BLUE = 0;
+    public static final byte TEAM_PURPLE = 1;
+    public static final byte TEAM_RED = 2;
+    public static final byte TEAM_YELLOW = 3;
+
+    public static final byte STATE_IDLE = 0;
+    public static final byte STATE_RIGHT = 1;
+    public static final byte STATE_LEFT = 2;
+    public static final byte STATE_TOP = 3;
+    public static final byte STATE_BOTTOM = 4;
+
+    private static final String[] TEAM_NAMES = {"blue", "purple", "red", "yellow"};
+    private static final String[] STATE_NAMES = {"IDLE", "RIGHT", "LEFT", "TOP", "BOTTOM"};
+
+    public final boolean[] active = new boolean[MAX_PLAYERS];
+    public final String[] ids = new String[MAX_PLAYERS];
+    public final String[] nicknames = new String[MAX_PLAYERS];
+    public final float[] positions = new float[MAX_PLAYERS * 2]; // x, y intercalados por handle
+    public final byte[] teams = new byte[MAX_PLAYERS];
+    public final byte[] states = new byte[MAX_PLAYERS];
+    public final boolean[] hasGold = new boolean[MAX_PLAYERS];
+
+    // Handles activos en orden, para recorrer solo los jugadores que existen
+    public final int[] handles = new int[MAX_PLAYERS];
+    public int playerCount;
+
+    private final ObjectIntMap<String> handlesById = new ObjectIntMap<>();
+
+    public final float[] goldPositions = new float[MAX_GOLD * 2];
+    public int goldCount;
+
+    public long tick;
+    public long receivedAt; // System.nanoTime() de llegada
+    public long serverTime = -1; // Hora del servidor al generarlo (ms, 32 bits), -1 si no la trae
+    public long producedAt; // System.nanoTime() equivalente a serverTime (o la llegada si no hay reloj sincronizado)
+
+    // Ack de nuestra propia entrada que viene con el snapshot (ver MovementPredictor)
+    public boolean hasAck;
+    public int ackSequence;
+    public int ackSteps;
+    public boolean running; // El servidor está aplicando movimiento (partida en marcha)
+
+    public void clear() {
+        for (int i = 0; i < playerCount; i++) {
+            int handle = handles[i];
+            active[handle] = false;
+            ids[handle] = null;
+            nicknames[handle] = null;
+        }
+        handlesById.clear();
+        playerCount = 0;
+        goldCount = 0;
+        tick = 0;
+        serverTime = -1;
+        hasAck = false;
+        running = false;
+    }
+
+    // Copia todo el estado sin reservar memoria (los String son inmutables y se comparten)
+    public void copyFrom(GameState other) {
+        System.arraycopy(other.active, 0, active, 0, MAX_PLAYERS);
+        System.arraycopy(other.ids, 0, ids, 0, MAX_PLAYERS);
+        System.arraycopy(other.nicknames, 0, nicknames, 0, MAX_PLAYERS);
+        System.arraycopy(other.positions, 0, positions, 0, MAX_PLAYERS * 2);
+        System.arraycopy(other.teams, 0, teams, 0, MAX_PLAYERS);
+        System.arraycopy(other.states, 0, states, 0, MAX_PLAYERS);
+        System.arraycopy(other.hasGold, 0, hasGold, 0, MAX_PLAYERS);
+        System.arraycopy(other.handles, 0, handles, 0, other.playerCount);
+        playerCount = other.playerCount;
+
+        handlesById.clear();
+        for (int i = 0; i < playerCount; i++) {
+            int handle = handles[i];
+            if (ids[handle] != null) handlesById.put(ids[handle], handle);
+        }
+
+        System.arraycopy(other.goldPositions, 0, goldPositions, 0, other.goldCount * 2);
+        goldCount = other.goldCount;
+        tick = other.tick;
+        receivedAt = other.receivedAt;
+        serverTime = other.serverTime;
+        producedAt = other.producedAt;
+        hasAck = other.hasAck;
+        ackSequence = other.ackSequence;
+        ackSteps = other.ackSteps;
+        running = other.running;
+    }
+
+    public void activate(int handle) {
+        if (!active[handle]) {
+            active[handle] = true;
+            handles[playerCount++] = handle;
+        }
+    }
+
+    public void remove(int handle) {
+        if (!active[handle]) return;
+        active[handle] = false;
+        if (ids[handle] != null) handlesById.remove(ids[handle], -1);
+        ids[handle] = null;
+        nicknames[handle] = null;
+        for (int i = 0; i < playerCount; i++) {
+            if (handles[i] == handle) {
+                handles[i] = handles[--playerCount];
+                break;
+            }
+        }
+    }
+
+    public void setId(int handle, String id) {
+        if (ids[handle] != null) handlesById.remove(ids[handle], -1);
+        ids[handle] = id;
+        if (id != null) handlesById.put(id, handle);
+    }
+
+    // Devuelve el handle del jugador con ese id o -1
+    public int findHandle(String id) {
+        if (id == null) return -1;
+        return handlesById.get(id, -1);
+    }
+
+    // Primer handle libre para un jugador nuevo o -1 si no caben más
+    public int freeHandle() {
+        for (int handle = 0; handle < MAX_PLAYERS; handle++) {
+            if (!active[handle]) return handle;
+        }
+        return -1;
+    }
+
+    public float getX(int handle) {return positions[handle * 2];}
+
+    public float getY(int handle) {return positions[handle * 2 + 1];}
+
+    public float getGoldX(int index) {return goldPositions[index * 2];}
+
+    public float getGoldY(int index) {return goldPositions[index * 2 + 1];}
+
+    // Nombres constantes, no se crea ningún String al consultarlos
+    public static String teamName(byte team) {
+        return team >= 0 && team < TEAM_NAMES.length ? TEAM_NAMES[team] : null;
+    }
+
+    public static byte teamCode(String team) {
+        for (byte i = 0; i < TEAM_NAMES.length; i++) {
+            if (TEAM_NAMES[i].equalsIgnoreCase(team)) return i;
+        }
+        return -1;
+    }
+
+    // También sirve para las direcciones de ataque (RIGHT, LEFT, TOP, BOTTOM)
+    public static byte stateCode(String state) {
+        for (byte i = 0; i < STATE_NAMES.length; i++) {
+            if (STATE_NAMES[i].equalsIgnoreCase(state)) return i;
+        }
+        return STATE_IDLE;
+    }
+
+    public static String stateName(byte state) {
+        return state >= 0 && state < STATE_NAMES.length ? STATE_NAMES[state] : STATE_NAMES[STATE_IDLE];
+    }
+}
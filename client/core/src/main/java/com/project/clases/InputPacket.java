@@ -0,0 +1,39 @@
+package com.project.clases;
+
+import java.nio.ByteBuffer;
+
+// Entrada del joystick (el equivalente a updateMovement) en un paquete binario de 7 bytes en vez de ~70 de JSON.
+// Lo decodifica SnapshotEncoder.decodeInput en utilsSnapshots.js:
+//
+//   u8  INPUT en los 4 bits bajos, estado (GameState.STATE_*) en los 4 altos
+//   i8  x, i8 y (ejes ya cuantizados por InputSampler, entre -inputQuantization e inputQuantization)
+//   u32 seq
+//
+// No lleva el id del jugador: el servidor ya sabe de quién es por la conexión.
+public class InputPacket {
+    public static final byte INPUT = 3; // Sigue a SnapshotDecoder.KEYFRAME y DELTA
+    public static final int SIZE = 7;
+    public static final int MAX_AXIS = 127;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+
+    // Solo se puede usar si la cuantización cabe en un byte con signo
+    public static boolean isEnabled() {
+        return NetworkConfig.binaryInput && NetworkConfig.inputQuantization <= MAX_AXIS;
+    }
+
+    // Devuelve siempre el mismo buffer, listo para leer; hay que enviarlo (copiarlo) antes de la siguiente llamada
+    public ByteBuffer encode(int quantizedX, int quantizedY, String state, int sequence) {
+        buffer.clear();
+        buffer.put((byte) (INPUT | GameState.stateCode(state) << 4));
+        buffer.put((byte) clamp(quantizedX));
+        buffer.put((byte) clamp(quantizedY));
+        buffer.putInt(sequence);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int clamp(int axis) {
+        return Math.max(-MAX_AXIS, Math.min(MAX_AXIS, axis));
+    }
+}
@@ -0,0 +1,70 @@
+package com.project.clases;
+
+// Muestrea la entrada del joystick a ritmo fijo (NetworkConfig.inputTickRate) en vez de en cada frame.
+// Solo hay que enviar la entrada cuando cambia; cada envío lleva un número de secuencia creciente.
+public class InputSampler {
+    private final float interval;
+    private final int quantization;
+    private float accumulator = 0f;
+    private int ticks = 0;
+
+    private int quantizedX = 0;
+    private int quantizedY = 0;
+    private String state = "IDLE";
+    private int sequence = 0;
+
+    // Tras una pausa larga no se intentan recuperar todos los ticks perdidos
+    private static final int MAX_TICKS_PER_FRAME = 5;
+
+    public InputSampler() {
+        this(NetworkConfig.inputTickRate, NetworkConfig.inputQuantization);
+    }
+
+    public InputSampler(int tickRate, int quantization) {
+        this.interval = 1f / tickRate;
+        this.quantization = quantization;
+    }
+
+    // Devuelve true si en este frame toca un tick y la entrada es distinta de la última enviada
+    public boolean sample(float delta, float x, float y, String newState) {
+        accumulator += delta;
+        ticks = (int) (accumulator / interval);
+        if (ticks == 0) return false;
+
+        // Si el frame ha tardado varios ticks solo importa la entrada actual
+        accumulator -= ticks * interval;
+        ticks = Math.min(ticks, MAX_TICKS_PER_FRAME);
+
+        int newX = Math.round(x * quantization);
+        int newY = Math.round(y * quantization);
+        if (newX == quantizedX && newY == quantizedY && newState.equals(state)) return false;
+
+        quantizedX = newX;
+        quantizedY = newY;
+        state = newState;
+        sequence++;
+        return true;
+    }
+
+    // Fuerza a reenviar la entrada actual en el próximo tick (el servidor la olvida al reconectar)
+    public void invalidate() {
+        state = null;
+    }
+
+    // Valores ya cuantizados, los mismos que recibe el servidor
+    public float getX() {return quantizedX / (float) quantization;}
+
+    public float getY() {return quantizedY / (float) quantization;}
+
+    // Pasos de cuantización tal cual (para el paquete binario)
+    public int getQuantizedX() {return quantizedX;}
+
+    public int getQuantizedY() {return quantizedY;}
+
+    public String getState() {return state;}
+
+    public int getSequence() {return sequence;}
+
+    // Ticks de simulación transcurridos en la última llamada a sample()
+    public int getTicks() {return ticks;}
+}
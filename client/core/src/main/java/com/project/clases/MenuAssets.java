@@ -0,0 +1,50 @@
+package com.project.clases;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.Texture;
+
+// Texturas del menú cargadas con un AssetManager: la pantalla de login las pide al abrirse y se van
+// decodificando en segundo plano mientras el usuario escribe, en vez de leerse en el constructor de
+// MenuScreen justo después del login. Son compartidas: las pantallas no las liberan, lo hace Main.
+// El AssetManager es estático y en Android sobrevive al contexto GL si se recrea la actividad en el mismo
+// proceso, así que Main lo crea de nuevo en create() y lo libera en dispose().
+public class MenuAssets {
+    public static final String BACKGROUND = "fondo.png";
+    public static final String FRAME = "marco.png";
+    public static final String BUTTON = "button.png";
+
+    private static AssetManager manager;
+
+    // Desde Main.create(): descarta el de una ejecución anterior (sus texturas ya no existen en este contexto)
+    public static void load() {
+        manager = null;
+        preload();
+    }
+
+    public static void preload() {
+        if (manager != null) return;
+        manager = new AssetManager();
+        manager.load(BACKGROUND, Texture.class);
+        manager.load(FRAME, Texture.class);
+        manager.load(BUTTON, Texture.class);
+    }
+
+    // Avanza la carga; hay que llamarlo desde render(). Devuelve true cuando ya está todo
+    public static boolean update() {
+        preload();
+        return manager.update();
+    }
+
+    // Si la textura aún no ha terminado de cargarse se espera a ella (p. ej. al entrar como invitado)
+    public static Texture get(String name) {
+        preload();
+        if (!manager.isLoaded(name)) manager.finishLoadingAsset(name);
+        return manager.get(name, Texture.class);
+    }
+
+    public static void dispose() {
+        if (manager == null) return;
+        manager.dispose();
+        manager = null;
+    }
+}
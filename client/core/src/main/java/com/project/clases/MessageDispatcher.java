@@ -0,0 +1,41 @@
+package com.project.clases;
+
+import com.badlogic.gdx.utils.Array;
+
+// Registro de handlers por tipo de mensaje. El "type" se localiza con MessageReader y se compara
+// sin crear Strings; cada handler lee solo los campos que necesita. Solo desde el hilo del WebSocket.
+public class MessageDispatcher {
+
+    public interface Handler {
+        void handle(MessageReader message) throws Exception;
+    }
+
+    private final Array<String> types = new Array<>();
+    private final Array<Handler> handlers = new Array<>();
+    private final MessageReader reader = new MessageReader();
+
+    public void register(String type, Handler handler) {
+        types.add(type);
+        handlers.add(handler);
+    }
+
+    // Devuelve el tipo registrado que ha atendido el mensaje, o null si no hay handler para él
+    public String dispatch(String message) throws Exception {
+        reader.reset(message);
+        if (!reader.findField("type")) return null;
+
+        for (int i = 0; i < types.size; i++) {
+            if (reader.valueIs(types.get(i))) {
+                reader.rewind();
+                handlers.get(i).handle(reader);
+                return types.get(i);
+            }
+        }
+        return null;
+    }
+
+    // Tipo del último mensaje si dispatch() no lo ha reconocido (solo para trazas)
+    public String unknownType() {
+        return reader.findField("type") ? reader.readString() : null;
+    }
+}
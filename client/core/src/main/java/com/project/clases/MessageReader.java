@@ -0,0 +1,241 @@
+package com.project.clases;
+
+// Lector JSON en streaming (pull) sobre el texto de un mensaje. No construye ningún árbol: se avanza
+// campo a campo por el objeto raíz y solo se convierten los valores que se piden; el resto se salta.
+// Los objetos y arrays anidados se recorren igual entre beginObject/endObject y beginArray/endArray.
+//
+//   while (reader.nextField()) {
+//       if (reader.fieldIs("id")) id = reader.readString();
+//   }
+public class MessageReader {
+    private String text;
+    private int pos;
+    private int nameStart, nameEnd;     // Nombre del campo actual, sin comillas
+    private boolean valuePending;       // El valor del campo actual aún no se ha leído
+    private final StringBuilder scratch = new StringBuilder();
+
+    public MessageReader reset(String text) {
+        this.text = text;
+        rewind();
+        return this;
+    }
+
+    // Vuelve al principio del objeto raíz
+    public void rewind() {
+        pos = 0;
+        valuePending = false;
+        skipWhitespace();
+        expect('{');
+    }
+
+    public String source() {return text;}
+
+    // Avanza al siguiente campo del objeto raíz. Si no se ha leído el valor del anterior, se salta.
+    public boolean nextField() {
+        if (valuePending) skipValue();
+        skipWhitespace();
+        if (pos < text.length() && text.charAt(pos) == ',') {
+            pos++;
+            skipWhitespace();
+        }
+        if (pos >= text.length() || text.charAt(pos) == '}') return false;
+
+        expect('"');
+        nameStart = pos;
+        pos = endOfString(pos);
+        nameEnd = pos;
+        pos++; // comilla de cierre
+
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+        valuePending = true;
+        return true;
+    }
+
+    // Entra en el objeto del valor actual; sus campos se recorren con nextField() hasta que devuelva false
+    public void beginObject() {
+        valuePending = false;
+        expect('{');
+    }
+
+    public void endObject() {
+        while (nextField()) skipValue();
+        expect('}');
+    }
+
+    // Entra en el array del valor actual; cada nextElement() deja el siguiente elemento listo para leer
+    public void beginArray() {
+        valuePending = false;
+        expect('[');
+    }
+
+    public boolean nextElement() {
+        if (valuePending) skipValue();
+        skipWhitespace();
+        if (pos < text.length() && text.charAt(pos) == ',') {
+            pos++;
+            skipWhitespace();
+        }
+        if (pos >= text.length() || text.charAt(pos) == ']') return false;
+        valuePending = true;
+        return true;
+    }
+
+    public void endArray() {
+        while (nextElement()) skipValue();
+        expect(']');
+    }
+
+    public boolean fieldIs(String name) {
+        return nameEnd - nameStart == name.length() && text.regionMatches(nameStart, name, 0, name.length());
+    }
+
+    // Busca un campo del objeto raíz desde el principio y deja su valor listo para leer
+    public boolean findField(String name) {
+        rewind();
+        while (nextField()) {
+            if (fieldIs(name)) return true;
+        }
+        return false;
+    }
+
+    // Compara el valor string del campo actual sin crear ningún String (no lo consume)
+    public boolean valueIs(String value) {
+        if (pos >= text.length() || text.charAt(pos) != '"') return false;
+        int end = pos + 1 + value.length();
+        return end < text.length() && text.charAt(end) == '"' && text.regionMatches(pos + 1, value, 0, value.length());
+    }
+
+    public String readString() {
+        valuePending = false;
+        if (text.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        }
+        expect('"');
+        int start = pos;
+        int end = endOfString(pos);
+        pos = end + 1;
+
+        // Sin escapes se puede devolver el trozo tal cual
+        int escape = text.indexOf('\\', start);
+        if (escape == -1 || escape > end) {
+            return text.substring(start, end);
+        }
+
+        scratch.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != '\\') {
+                scratch.append(c);
+                continue;
+            }
+            char escaped = text.charAt(++i);
+            switch (escaped) {
+                case 'n': scratch.append('\n'); break;
+                case 't': scratch.append('\t'); break;
+                case 'r': scratch.append('\r'); break;
+                case 'b': scratch.append('\b'); break;
+                case 'f': scratch.append('\f'); break;
+                case 'u':
+                    scratch.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: scratch.append(escaped); break;
+            }
+        }
+        return scratch.toString();
+    }
+
+    public long readLong() {
+        valuePending = false;
+        int start = pos;
+        boolean negative = false;
+        if (text.charAt(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+            value = value * 10 + (text.charAt(pos++) - '0');
+        }
+        // Si trae decimales o exponente se lee como double y se trunca
+        if (pos < text.length() && (text.charAt(pos) == '.' || text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            pos = start;
+            return (long) readDouble();
+        }
+        if (pos == start) throw error("número esperado");
+        return negative ? -value : value;
+    }
+
+    public double readDouble() {
+        valuePending = false;
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) != -1) pos++;
+        if (pos == start) throw error("número esperado");
+        return Double.parseDouble(text.substring(start, pos));
+    }
+
+    public boolean readBoolean() {
+        valuePending = false;
+        if (text.startsWith("true", pos)) {
+            pos += 4;
+            return true;
+        }
+        if (text.startsWith("false", pos)) {
+            pos += 5;
+            return false;
+        }
+        throw error("booleano esperado");
+    }
+
+    // Salta el valor actual (string, número, literal, objeto o array completo)
+    public void skipValue() {
+        valuePending = false;
+        char c = text.charAt(pos);
+        if (c == '"') {
+            pos = endOfString(pos + 1) + 1;
+            return;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (pos < text.length()) {
+                c = text.charAt(pos);
+                if (c == '"') {
+                    pos = endOfString(pos + 1) + 1;
+                    continue;
+                }
+                if (c == '{' || c == '[') depth++;
+                else if (c == '}' || c == ']') depth--;
+                pos++;
+                if (depth == 0) return;
+            }
+            throw error("objeto sin cerrar");
+        }
+        while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) == -1) pos++;
+    }
+
+    // Posición de la comilla que cierra el string que empieza en start
+    private int endOfString(int start) {
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') i++;
+            else if (c == '"') return i;
+        }
+        throw error("string sin cerrar");
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private void expect(char c) {
+        if (pos >= text.length() || text.charAt(pos) != c) throw error("se esperaba '" + c + "'");
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON inválido en la posición " + pos + ": " + message);
+    }
+}
@@ -0,0 +1,165 @@
+package com.project.clases;
+
+import java.nio.ByteBuffer;
+
+// Escribe mensajes JSON planos directamente en un ByteBuffer reutilizable, sin JSONObject ni String
+// intermedios. Pensado para los mensajes que se mandan muchas veces por segundo.
+// Las cadenas se codifican en UTF-8 (los pares suplentes como un solo carácter de 4 bytes) y el buffer
+// crece si un mensaje no cabe.
+public class MessageWriter {
+    // Bytes como máximo por char de una cadena: 3 en UTF-8 (un par suplente son 2 chars y 4 bytes)
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    // Comillas del nombre y del valor, dos puntos y coma
+    private static final int FIELD_OVERHEAD = 6;
+    // Signo, 19 dígitos, punto y tres decimales
+    private static final int MAX_NUMBER_BYTES = 24;
+
+    private ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+    private boolean firstField;
+    private String type;
+
+    public MessageWriter() {
+        this(512);
+    }
+
+    public MessageWriter(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    public MessageWriter begin(String type) {
+        buffer.clear();
+        reserve(1);
+        buffer.put((byte) '{');
+        firstField = true;
+        this.type = type;
+        return string("type", type);
+    }
+
+    public String getType() {return type;}
+
+    // Los valores null no se escriben, igual que JSONObject.put(key, null)
+    public MessageWriter string(String name, String value) {
+        if (value == null) return this;
+        reserve(FIELD_OVERHEAD + (name.length() + value.length()) * MAX_BYTES_PER_CHAR);
+        name(name);
+        quoted(value);
+        return this;
+    }
+
+    public MessageWriter number(String name, long value) {
+        reserve(FIELD_OVERHEAD + name.length() * MAX_BYTES_PER_CHAR + MAX_NUMBER_BYTES);
+        name(name);
+        integer(value);
+        return this;
+    }
+
+    // Hasta tres decimales, sin ceros sobrantes (0.75 -> "0.75", 1 -> "1")
+    public MessageWriter number(String name, float value) {
+        reserve(FIELD_OVERHEAD + name.length() * MAX_BYTES_PER_CHAR + MAX_NUMBER_BYTES);
+        name(name);
+        long scaled = Math.round(value * 1000.0);
+        if (scaled < 0) {
+            buffer.put((byte) '-');
+            scaled = -scaled;
+        }
+        integer(scaled / 1000);
+
+        int fraction = (int) (scaled % 1000);
+        if (fraction != 0) {
+            buffer.put((byte) '.');
+            int divisor = 100;
+            while (fraction != 0) {
+                buffer.put((byte) ('0' + fraction / divisor));
+                fraction %= divisor;
+                divisor /= 10;
+            }
+        }
+        return this;
+    }
+
+    public MessageWriter bool(String name, boolean value) {
+        reserve(FIELD_OVERHEAD + name.length() * MAX_BYTES_PER_CHAR + 5);
+        name(name);
+        ascii(value ? "true" : "false");
+        return this;
+    }
+
+    // Cierra el objeto y deja el buffer listo para leer. Sigue siendo del writer: no guardarlo.
+    public ByteBuffer end() {
+        reserve(1);
+        buffer.put((byte) '}');
+        buffer.flip();
+        return buffer;
+    }
+
+    // Se llama antes de cada campo con lo que puede ocupar como mucho; si no cabe se dobla el buffer
+    private void reserve(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    private void name(String name) {
+        if (!firstField) buffer.put((byte) ',');
+        firstField = false;
+        quoted(name);
+        buffer.put((byte) ':');
+    }
+
+    private void integer(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+    }
+
+    private void ascii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void quoted(String text) {
+        buffer.put((byte) '"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.put((byte) '\\');
+                buffer.put((byte) c);
+            } else if (c < 0x20) {
+                buffer.put((byte) ' ');
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // Carácter fuera del BMP (p. ej. emojis): los dos chars van juntos en 4 bytes
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Suplente suelto: no se puede codificar en UTF-8 válido
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.put((byte) '"');
+    }
+}
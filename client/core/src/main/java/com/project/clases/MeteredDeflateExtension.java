@@ -0,0 +1,63 @@
+package com.project.clases;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+
+import java.nio.ByteBuffer;
+
+// permessage-deflate de Java-WebSocket que además anota en TransportStats el tamaño de cada frame
+// antes y después de comprimir. Solo se comprimen los envíos a partir de NetworkConfig.deflateThreshold.
+public class MeteredDeflateExtension extends PerMessageDeflateExtension {
+    private final TransportStats stats;
+
+    public MeteredDeflateExtension(TransportStats stats, int threshold) {
+        this.stats = stats;
+        setThreshold(threshold);
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame)) {
+            super.encodeFrame(frame);
+            return;
+        }
+
+        ByteBuffer payload = frame.getPayloadData();
+        int raw = payload.remaining();
+
+        // La extensión mira (y comprime) payload.array() entero, no solo los bytes del mensaje
+        if (raw < getThreshold()) {
+            stats.frameSent(raw, raw);
+            return;
+        }
+
+        // Los buffers reutilizados (MessageWriter) tienen más capacidad que el mensaje
+        if (payload.arrayOffset() != 0 || payload.position() != 0 || payload.limit() != payload.capacity()) {
+            byte[] exact = new byte[raw];
+            payload.duplicate().get(exact);
+            ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(exact));
+        }
+
+        super.encodeFrame(frame);
+        stats.frameSent(raw, frame.getPayloadData().remaining());
+    }
+
+    @Override
+    public void decodeFrame(Framedata frame) throws InvalidDataException {
+        int wire = frame.getPayloadData().remaining();
+        super.decodeFrame(frame);
+        if (frame instanceof DataFrame) {
+            stats.frameReceived(frame.getPayloadData().remaining(), wire);
+        }
+    }
+
+    // Draft_6455 copia las extensiones en cada conexión; la copia tiene que seguir siendo esta clase
+    @Override
+    public IExtension copyInstance() {
+        return new MeteredDeflateExtension(stats, getThreshold());
+    }
+}
@@ -0,0 +1,163 @@
+package com.project.clases;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Predicción del movimiento del jugador local con las mismas reglas que stepMovement() del servidor.
+// Cada tick de entrada se guarda en un historial; cuando llega un snapshot con el ack de nuestra entrada
+// se parte de la posición del servidor y se vuelven a aplicar los ticks que todavía no ha procesado.
+public class MovementPredictor {
+    // Reglas de gameLogic.js: 120 px/s repartidos entre los 50 ticks del servidor
+    private static final float SPEED = 120f / 50f;
+    private static final float GOLD_SLOWDOWN = 1.5f;
+    private static final int TILE_SIZE = 64;
+    private static final int MAP_TILES = 32;
+
+    private static final int HISTORY_SIZE = 256;      // Unos 5 segundos de ticks a 50 por segundo
+    private static final float SNAP_DISTANCE = 64f;   // Correcciones mayores se aplican de golpe
+    private static final float CORRECTION_SPEED = 10f;
+
+    private final boolean[] blocked = new boolean[MAP_TILES * MAP_TILES];
+
+    // Historial circular de ticks sin confirmar: secuencia de la entrada y ejes aplicados
+    private final int[] historySequence = new int[HISTORY_SIZE];
+    private final float[] historyX = new float[HISTORY_SIZE];
+    private final float[] historyY = new float[HISTORY_SIZE];
+    private int historyStart = 0;
+    private int historyCount = 0;
+
+    private boolean active = false;
+    private long lastTick = -1;
+    private boolean hasGold;
+    private float x, y;
+    private float errorX, errorY; // Diferencia tras reconciliar, se reduce poco a poco
+
+    public MovementPredictor(JSONObject gameData) {
+        JSONObject level = gameData.optJSONArray("levels") != null ? gameData.getJSONArray("levels").optJSONObject(0) : null;
+        JSONArray layers = level != null ? level.optJSONArray("layers") : null;
+        if (layers == null) return;
+
+        JSONArray water = null;
+        JSONArray towers = null;
+        for (int i = 0; i < layers.length(); i++) {
+            JSONObject layer = layers.getJSONObject(i);
+            if ("water0".equals(layer.optString("name"))) water = layer.optJSONArray("tileMap");
+            if ("towers".equals(layer.optString("name"))) towers = layer.optJSONArray("tileMap");
+        }
+
+        // Igual que el servidor: si falta alguna de las dos capas no se bloquea nada
+        if (water == null || towers == null) return;
+
+        for (int row = 0; row < MAP_TILES; row++) {
+            // Las filas del mapa están invertidas en Y respecto a las coordenadas del mundo
+            int invertedRow = MAP_TILES - 1 - row;
+            for (int col = 0; col < MAP_TILES; col++) {
+                blocked[row * MAP_TILES + col] = isTile(water, invertedRow, col) || isTile(towers, invertedRow, col);
+            }
+        }
+    }
+
+    private static boolean isTile(JSONArray tileMap, int row, int col) {
+        JSONArray tiles = tileMap.optJSONArray(row);
+        return tiles != null && tiles.optInt(col, -1) != -1;
+    }
+
+    public boolean isPositionValid(float px, float py) {
+        int col = (int) Math.floor(px / TILE_SIZE);
+        int row = (int) Math.floor(py / TILE_SIZE);
+        if (col < 0 || col >= MAP_TILES || row < 0 || row >= MAP_TILES) return false;
+        return !blocked[row * MAP_TILES + col];
+    }
+
+    // Solo se predice si el servidor nos manda ack y está aplicando movimiento
+    public boolean isActive() {return active;}
+
+    // Con cada snapshot nuevo: posición del servidor + ticks que aún no ha procesado
+    public void reconcile(GameState state, int handle) {
+        if (state.tick == lastTick) return;
+        lastTick = state.tick;
+
+        if (!state.hasAck || !state.running) {
+            active = false;
+            historyCount = 0;
+            return;
+        }
+
+        // Descartar lo que el servidor ya ha aplicado: entradas anteriores y los ticks de la confirmada
+        while (historyCount > 0 && historySequence[historyStart] - state.ackSequence < 0) {
+            dropOldest();
+        }
+        int applied = state.ackSteps;
+        while (historyCount > 0 && applied > 0 && historySequence[historyStart] == state.ackSequence) {
+            dropOldest();
+            applied--;
+        }
+
+        float previousX = x + errorX;
+        float previousY = y + errorY;
+
+        hasGold = state.hasGold[handle];
+        x = state.getX(handle);
+        y = state.getY(handle);
+        for (int i = 0; i < historyCount; i++) {
+            int index = (historyStart + i) % HISTORY_SIZE;
+            move(historyX[index], historyY[index]);
+        }
+
+        if (active) {
+            errorX = previousX - x;
+            errorY = previousY - y;
+            if (errorX * errorX + errorY * errorY > SNAP_DISTANCE * SNAP_DISTANCE) {
+                errorX = 0;
+                errorY = 0;
+            }
+        } else {
+            errorX = 0;
+            errorY = 0;
+        }
+        active = true;
+    }
+
+    // Aplica localmente los ticks de entrada de este frame (los mismos valores que se envían)
+    public void step(int ticks, int sequence, float inputX, float inputY) {
+        if (!active) return;
+
+        for (int i = 0; i < ticks; i++) {
+            if (historyCount == HISTORY_SIZE) dropOldest();
+            int index = (historyStart + historyCount) % HISTORY_SIZE;
+            historySequence[index] = sequence;
+            historyX[index] = inputX;
+            historyY[index] = inputY;
+            historyCount++;
+
+            move(inputX, inputY);
+        }
+    }
+
+    // Suaviza la corrección de la última reconciliación
+    public void update(float delta) {
+        float factor = Math.min(1f, CORRECTION_SPEED * delta);
+        errorX -= errorX * factor;
+        errorY -= errorY * factor;
+    }
+
+    public float getX() {return x + errorX;}
+
+    public float getY() {return y + errorY;}
+
+    private void move(float inputX, float inputY) {
+        float speed = hasGold ? SPEED / GOLD_SLOWDOWN : SPEED;
+        float newX = x + inputX * speed;
+        float newY = y + inputY * speed;
+
+        if (isPositionValid(newX, newY)) {
+            x = newX;
+            y = newY;
+        }
+    }
+
+    private void dropOldest() {
+        historyStart = (historyStart + 1) % HISTORY_SIZE;
+        historyCount--;
+    }
+}
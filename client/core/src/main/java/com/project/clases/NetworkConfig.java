@@ -0,0 +1,68 @@
+package com.project.clases;
+
+// Opciones de red del cliente. Se leen al conectar, así que hay que cambiarlas antes de crear WebSockets.
+public class NetworkConfig {
+    // Nodos del servidor de juego. Con más de uno se mide la latencia a todos antes de conectar y se usa el
+    // mejor (EndpointSelector); si falla se pasa a los demás. Se puede cambiar sin recompilar con
+    // -DgameEndpoints=url1,url2 (p. ej. servidores locales de prueba: ws://localhost:3000,ws://localhost:3001).
+    public static String[] gameEndpoints = System.getProperty("gameEndpoints", "wss://bandera3.ieti.site").split(",");
+
+    // Ping por nodo al medir la latencia y tiempo máximo que se espera a todos
+    public static int probePings = 5;
+    public static int probeTimeoutMs = 2000;
+
+    // URL base de la API HTTP (login, perfil, términos). Es una sola: las cuentas están en una única base de datos.
+    public static String apiBaseUrl = System.getProperty("apiBaseUrl", "https://bandera3.ieti.site");
+
+    // Pedir al servidor los "update" en formato binario (keyframes + deltas) en vez de JSON
+    public static boolean binarySnapshots = true;
+
+    // Negociar permessage-deflate con el servidor. Los envíos más pequeños que el umbral (bytes) no se comprimen.
+    public static boolean perMessageDeflate = true;
+    public static int deflateThreshold = 128;
+
+    // Veces por segundo que se muestrea el joystick (el servidor simula a 50 ticks por segundo)
+    public static int inputTickRate = 50;
+
+    // Pasos por unidad al cuantizar los ejes del joystick; cambios menores no se envían
+    public static int inputQuantization = 100;
+
+    // Mandar la entrada como paquete binario de 7 bytes (InputPacket) en vez de updateMovement en JSON.
+    // Solo se usa si inputQuantization cabe en un byte (<= 127).
+    public static boolean binaryInput = true;
+
+    // Bytes que puede acumular la cola de salida antes de descartar los mensajes normales más antiguos.
+    // Los ataques y mensajes de control no cuentan para el descarte; del movimiento solo se guarda el último.
+    public static int outboundQueueBytes = 64 * 1024;
+
+    // Mensajes críticos que pueden esperar en la cola si el socket se atasca. Al pasarse se descarta el más
+    // antiguo del mismo tipo (un ataque viejo ya no sirve); los de control sueltos (join, resume...) se quedan.
+    public static int criticalQueueMessages = 64;
+
+    // Agrupar en un solo frame "batch" los mensajes que se envían en el mismo tick
+    public static boolean batchOutbound = true;
+
+    // Opciones del socket del WebSocket. Los buffers a 0 dejan el tamaño del sistema.
+    public static boolean tcpNoDelay = true;        // Los mensajes son pequeños: sin esperar a Nagle
+    public static boolean socketReuseAddress = false;
+    public static boolean socketKeepAlive = true;
+    public static int socketReceiveBuffer = 0;
+    public static int socketSendBuffer = 0;
+    public static int connectTimeoutMs = 10000;
+
+    // Tiempo que se guarda la sesión TLS para reanudarla al reconectar sin handshake completo
+    public static int tlsSessionTimeoutSeconds = 24 * 60 * 60;
+
+    // Segundos sin pong antes de dar la conexión por perdida (Java-WebSocket manda los ping)
+    public static int heartbeatSeconds = 5;
+
+    // Espera antes de reconectar: se dobla en cada intento, con jitter, hasta el máximo.
+    // El servidor guarda el sitio del jugador 15 segundos.
+    public static long reconnectBaseDelayMs = 500;
+    public static long reconnectMaxDelayMs = 8000;
+
+    // Mostrar el overlay de métricas de red al entrar en la partida (F3 lo alterna, F4 vuelca un informe)
+    public static boolean showNetworkOverlay = false;
+
+    private NetworkConfig() {}
+}
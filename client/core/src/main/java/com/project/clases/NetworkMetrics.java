@@ -0,0 +1,207 @@
+package com.project.clases;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.util.Arrays;
+
+// Métricas de la conexión para saber si una mala partida es culpa del servidor, de la red o del cliente:
+// RTT de ping/pong, bytes y mensajes por segundo por tipo, tiempo de decodificación y huecos de ticks.
+// Se alimenta desde el hilo del WebSocket y se consulta desde el render (overlay) o se vuelca a un fichero.
+public class NetworkMetrics {
+    private static final int RTT_SAMPLES = 100;
+
+    // Límites superiores de cada cubeta del histograma de decodificación, en microsegundos
+    private static final int[] DECODE_BUCKETS_US = {50, 100, 250, 500, 1000, 2000, 5000, 10000};
+
+    private final TransportStats transportStats;
+    private final OutboundQueue outboundQueue;
+    private final ClockSync clock;
+
+    private float transit = -1; // ms desde que el servidor genera un snapshot hasta que llega (media móvil)
+
+    private final float[] rttSamples = new float[RTT_SAMPLES]; // ms
+    private final float[] rttSorted = new float[RTT_SAMPLES];
+    private int rttCount = 0;
+    private int rttNext = 0;
+    private float lastRtt = -1;
+
+    private final ObjectMap<String, DecodeStats> decodeByType = new ObjectMap<>();
+
+    private long lastTick = -1;
+    private long tickGaps = 0;      // Ticks que no han llegado
+    private long ticksOutOfOrder = 0;
+
+    // Totales del segundo anterior para calcular los ritmos
+    private final ObjectMap<String, TransportStats.TypeStats> previousTotals = new ObjectMap<>();
+    private final ObjectMap<String, TransportStats.TypeStats> currentTotals = new ObjectMap<>();
+    private final ObjectMap<String, float[]> rates = new ObjectMap<>(); // mensajes/s y bytes/s enviados y recibidos
+    private long lastRateUpdate = 0;
+
+    private volatile String overlayText = "";
+
+    private static class DecodeStats {
+        final long[] buckets = new long[DECODE_BUCKETS_US.length + 1];
+        long count;
+        long totalNanos;
+        long maxNanos;
+    }
+
+    public NetworkMetrics(TransportStats transportStats, OutboundQueue outboundQueue, ClockSync clock) {
+        this.transportStats = transportStats;
+        this.outboundQueue = outboundQueue;
+        this.clock = clock;
+    }
+
+    public synchronized void recordRtt(float milliseconds) {
+        rttSamples[rttNext] = milliseconds;
+        rttNext = (rttNext + 1) % RTT_SAMPLES;
+        if (rttCount < RTT_SAMPLES) rttCount++;
+        lastRtt = milliseconds;
+    }
+
+    public synchronized void recordDecode(String type, long nanos) {
+        DecodeStats stats = decodeByType.get(type);
+        if (stats == null) {
+            stats = new DecodeStats();
+            decodeByType.put(type, stats);
+        }
+        long micros = nanos / 1000;
+        int bucket = 0;
+        while (bucket < DECODE_BUCKETS_US.length && micros >= DECODE_BUCKETS_US[bucket]) bucket++;
+        stats.buckets[bucket]++;
+        stats.count++;
+        stats.totalNanos += nanos;
+        stats.maxNanos = Math.max(stats.maxNanos, nanos);
+    }
+
+    // Latencia de un snapshot medida con el reloj sincronizado (solo ida, a diferencia del RTT)
+    public synchronized void recordTransit(float milliseconds) {
+        transit = transit < 0 ? milliseconds : transit + (milliseconds - transit) * 0.1f;
+    }
+
+    // Tick de cada snapshot recibido, en el orden de llegada
+    public synchronized void recordTick(long tick) {
+        if (lastTick >= 0) {
+            if (tick > lastTick + 1) {
+                tickGaps += tick - lastTick - 1;
+            } else if (tick <= lastTick) {
+                ticksOutOfOrder++;
+            }
+        }
+        if (tick > lastTick) lastTick = tick;
+    }
+
+    // Tras reconectar los ticks vuelven a empezar a contar desde el primer snapshot
+    public synchronized void resetTicks() {
+        lastTick = -1;
+    }
+
+    // Percentil (0-100) de las últimas muestras de RTT, o -1 si aún no hay ninguna
+    public synchronized float getRttPercentile(float percentile) {
+        if (rttCount == 0) return -1;
+        System.arraycopy(rttSamples, 0, rttSorted, 0, rttCount);
+        Arrays.sort(rttSorted, 0, rttCount);
+        int index = Math.min(rttCount - 1, (int) Math.ceil(percentile / 100f * rttCount) - 1);
+        return rttSorted[Math.max(0, index)];
+    }
+
+    public synchronized float getLastRtt() {return lastRtt;}
+
+    public synchronized long getTickGaps() {return tickGaps;}
+
+    // Texto ya preparado para el overlay; se rehace una vez por segundo en update()
+    public String getOverlayText() {return overlayText;}
+
+    // Recalcula los ritmos por tipo y el texto del overlay. Se llama una vez por segundo.
+    public synchronized void update(long now) {
+        transportStats.copyTotals(currentTotals);
+        if (lastRateUpdate != 0) {
+            float seconds = (now - lastRateUpdate) / 1e9f;
+            for (ObjectMap.Entry<String, TransportStats.TypeStats> entry : currentTotals.entries()) {
+                TransportStats.TypeStats current = entry.value;
+                TransportStats.TypeStats previous = previousTotals.get(entry.key);
+                float[] rate = rates.get(entry.key);
+                if (rate == null) {
+                    rate = new float[4];
+                    rates.put(entry.key, rate);
+                }
+                rate[0] = (current.sentMessages - (previous != null ? previous.sentMessages : 0)) / seconds;
+                rate[1] = (current.sentWireBytes - (previous != null ? previous.sentWireBytes : 0)) / seconds;
+                rate[2] = (current.receivedMessages - (previous != null ? previous.receivedMessages : 0)) / seconds;
+                rate[3] = (current.receivedWireBytes - (previous != null ? previous.receivedWireBytes : 0)) / seconds;
+            }
+        }
+        transportStats.copyTotals(previousTotals);
+        lastRateUpdate = now;
+
+        overlayText = buildOverlay();
+    }
+
+    private String buildOverlay() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RTT ").append(format(lastRtt)).append(" ms  p50 ").append(format(getRttPercentile(50)))
+                .append("  p90 ").append(format(getRttPercentile(90)))
+                .append("  p99 ").append(format(getRttPercentile(99))).append('\n');
+
+        float upBytes = 0, downBytes = 0;
+        for (ObjectMap.Entry<String, float[]> entry : rates.entries()) {
+            float[] rate = entry.value;
+            upBytes += rate[1];
+            downBytes += rate[3];
+            if (rate[0] == 0 && rate[2] == 0) continue;
+            builder.append(entry.key).append(": ");
+            if (rate[0] > 0) builder.append("up ").append(format(rate[0])).append("/s ").append(format(rate[1] / 1024f)).append(" KB/s  ");
+            if (rate[2] > 0) builder.append("down ").append(format(rate[2])).append("/s ").append(format(rate[3] / 1024f)).append(" KB/s");
+            builder.append('\n');
+        }
+        builder.append("Total up ").append(format(upBytes / 1024f)).append(" KB/s  down ").append(format(downBytes / 1024f)).append(" KB/s\n");
+
+        for (ObjectMap.Entry<String, DecodeStats> entry : decodeByType.entries()) {
+            DecodeStats stats = entry.value;
+            builder.append("Decode ").append(entry.key).append(": media ")
+                    .append(format(stats.totalNanos / 1000f / stats.count)).append(" us  max ")
+                    .append(format(stats.maxNanos / 1000f)).append(" us\n");
+        }
+        if (clock.isSynced()) {
+            builder.append("Reloj offset ").append(Math.round(clock.getOffset() * 10) / 10.0).append(" ms  deriva ")
+                    .append(Math.round(clock.getDriftPpm())).append(" ppm  tránsito ").append(format(transit)).append(" ms\n");
+        }
+        builder.append("Cola de salida ").append(outboundQueue.getDepth()).append(" msgs ")
+                .append(outboundQueue.getQueuedBytes()).append(" B  descartados ").append(outboundQueue.getDropped()).append('\n');
+        builder.append("Ticks perdidos ").append(tickGaps).append("  desordenados ").append(ticksOutOfOrder);
+        return builder.toString();
+    }
+
+    // Informe completo, con los histogramas y los bytes por tipo desde el inicio de la conexión
+    public synchronized void dump(FileHandle file) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("== Métricas de red ==\n");
+        builder.append(overlayText).append("\n\n");
+
+        builder.append("== Histograma de decodificación (us) ==\n");
+        for (ObjectMap.Entry<String, DecodeStats> entry : decodeByType.entries()) {
+            DecodeStats stats = entry.value;
+            builder.append(entry.key).append(" (").append(stats.count).append(" mensajes)\n");
+            for (int i = 0; i < stats.buckets.length; i++) {
+                builder.append(i < DECODE_BUCKETS_US.length ? "  < " + DECODE_BUCKETS_US[i] : "  >= " + DECODE_BUCKETS_US[DECODE_BUCKETS_US.length - 1])
+                        .append(": ").append(stats.buckets[i]).append('\n');
+            }
+        }
+
+        builder.append("\n== RTT (ms, últimas ").append(rttCount).append(" muestras) ==\n");
+        for (int i = 0; i < rttCount; i++) {
+            builder.append(format(rttSamples[(rttNext - rttCount + i + RTT_SAMPLES) % RTT_SAMPLES])).append(' ');
+        }
+
+        builder.append("\n\n== Bytes por tipo (sin comprimir -> en el socket) ==\n");
+        builder.append(transportStats.summary());
+
+        file.writeString(builder.toString(), false, "UTF-8");
+    }
+
+    private static String format(float value) {
+        if (value < 0) return "-";
+        return String.valueOf(Math.round(value * 10f) / 10f);
+    }
+}
@@ -0,0 +1,304 @@
+package com.project.clases;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Queue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// Cola de salida con prioridades y su propio hilo de envío. Solo se escribe en el socket cuando la
+// librería ha vaciado lo anterior (backpressure), así que lo que se acumula lo hace aquí, donde aún
+// se puede reordenar: primero los mensajes críticos (ataques, join...), con un límite de mensajes, luego
+// el último movimiento (los anteriores se descartan) y por último el resto, con un límite de bytes.
+//
+// Los mensajes encolados esperan a flush(). Si al enviar hay más de uno pendiente se agrupan en un solo
+// frame {"type":"batch","messages":[...]}, de modo que el ataque y el movimiento de un tick viajan juntos.
+// Los mensajes binarios (InputPacket) no se pueden meter en un batch de texto y van siempre solos.
+public class OutboundQueue {
+    public static final int CRITICAL = 0; // Solo se descartan si el socket se atasca (maxCriticalMessages)
+    public static final int MOVEMENT = 1; // Solo cuenta el último
+    public static final int NORMAL = 2;   // Se descartan los más antiguos si se supera el límite
+
+    private static final long BACKPRESSURE_WAIT_MS = 2;
+    private static final int MAX_BATCH_BYTES = 16 * 1024;
+
+    private static final byte[] BATCH_START = "{\"type\":\"batch\",\"messages\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BATCH_END = "]}".getBytes(StandardCharsets.UTF_8);
+
+    // Lo que hace falta para escribir en el socket; lo implementa WebSockets
+    public interface Sender {
+        boolean isOpen();
+
+        boolean hasBufferedData();
+
+        // Un frame de texto o binario; types y lengths describen los mensajes que lleva (uno, o varios si es un batch)
+        void send(ByteBuffer frame, boolean binary, Array<String> types, IntArray lengths);
+    }
+
+    private static class Outgoing {
+        String type;
+        boolean binary;
+        byte[] data = new byte[256];
+        int length;
+
+        void set(String type, boolean binary, ByteBuffer payload) {
+            this.type = type;
+            this.binary = binary;
+            length = payload.remaining();
+            if (data.length < length) {
+                data = new byte[Math.max(length, data.length * 2)];
+            }
+            payload.duplicate().get(data, 0, length);
+        }
+    }
+
+    private final Object lock = new Object();
+    private final Pool<Outgoing> pool = new Pool<Outgoing>() {
+        @Override
+        protected Outgoing newObject() {
+            return new Outgoing();
+        }
+    };
+    private final Queue<Outgoing> critical = new Queue<>();
+    private final Queue<Outgoing> normal = new Queue<>();
+    private Outgoing movement;
+
+    private final Sender sender;
+    private final int maxQueuedBytes;
+    private final int maxCriticalMessages;
+    private final boolean batching;
+    private int queuedBytes = 0;
+    private long dropped = 0;
+    private boolean flushRequested = false;
+
+    // Frame que se está enviando; solo lo toca el hilo de envío
+    private ByteBuffer frame = ByteBuffer.allocate(1024);
+    private boolean frameBinary;
+    private final Array<String> frameTypes = new Array<>();
+    private final IntArray frameLengths = new IntArray();
+    private volatile boolean running = true;
+    private final Thread thread;
+
+    public OutboundQueue(Sender sender, int maxQueuedBytes, int maxCriticalMessages, boolean batching) {
+        this.sender = sender;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.maxCriticalMessages = Math.max(1, maxCriticalMessages);
+        this.batching = batching;
+        thread = new Thread(this::run, "websocket-sender");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void enqueue(String type, int priority, String message) {
+        enqueue(type, priority, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)), false);
+    }
+
+    // El payload se copia: el llamante puede reutilizar su buffer en cuanto vuelve.
+    // No se envía nada hasta el siguiente flush().
+    public void enqueue(String type, int priority, ByteBuffer payload, boolean binary) {
+        synchronized (lock) {
+            if (priority == MOVEMENT) {
+                if (movement != null) {
+                    queuedBytes -= movement.length;
+                    dropped++;
+                } else {
+                    movement = pool.obtain();
+                }
+                movement.set(type, binary, payload);
+                queuedBytes += movement.length;
+            } else {
+                Outgoing outgoing = pool.obtain();
+                outgoing.set(type, binary, payload);
+                queuedBytes += outgoing.length;
+                (priority == CRITICAL ? critical : normal).addLast(outgoing);
+
+                // Mientras el socket no vacía (hasBufferedData) los críticos se acumulan aquí: con el límite
+                // superado se quita el más antiguo del mismo tipo, o el más antiguo si es el único de su tipo
+                if (priority == CRITICAL && critical.size > maxCriticalMessages) {
+                    Outgoing oldest = critical.removeIndex(oldestCritical(type));
+                    queuedBytes -= oldest.length;
+                    pool.free(oldest);
+                    dropped++;
+                }
+
+                // Con la cola llena se sacrifican los mensajes normales más antiguos, nunca los críticos
+                while (queuedBytes > maxQueuedBytes && normal.size > 0) {
+                    Outgoing oldest = normal.removeFirst();
+                    queuedBytes -= oldest.length;
+                    pool.free(oldest);
+                    dropped++;
+                }
+            }
+        }
+    }
+
+    private int oldestCritical(String type) {
+        // El último es el que se acaba de encolar
+        for (int i = 0; i < critical.size - 1; i++) {
+            if (Objects.equals(critical.get(i).type, type)) return i;
+        }
+        return 0;
+    }
+
+    // Envía lo encolado hasta ahora (en un solo frame si cabe)
+    public void flush() {
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    // Al perder la conexión lo pendiente ya no vale (al reconectar se manda join/resume de nuevo)
+    public void clear() {
+        synchronized (lock) {
+            while (critical.size > 0) pool.free(critical.removeFirst());
+            while (normal.size > 0) pool.free(normal.removeFirst());
+            if (movement != null) {
+                pool.free(movement);
+                movement = null;
+            }
+            queuedBytes = 0;
+            flushRequested = false;
+        }
+    }
+
+    public int getDepth() {
+        synchronized (lock) {
+            return critical.size + normal.size + (movement != null ? 1 : 0);
+        }
+    }
+
+    public int getQueuedBytes() {
+        synchronized (lock) {
+            return queuedBytes;
+        }
+    }
+
+    // Movimientos reemplazados y mensajes normales o críticos descartados por los límites
+    public long getDropped() {
+        synchronized (lock) {
+            return dropped;
+        }
+    }
+
+    public void dispose() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private boolean isEmpty() {
+        return critical.size + normal.size == 0 && movement == null;
+    }
+
+    private Outgoing peek() {
+        if (critical.size > 0) return critical.first();
+        if (movement != null) return movement;
+        if (normal.size > 0) return normal.first();
+        return null;
+    }
+
+    // El que saldría después de peek()
+    private Outgoing peekSecond() {
+        if (critical.size > 1) return critical.get(1);
+        if (critical.size == 1) return movement != null ? movement : (normal.size > 0 ? normal.first() : null);
+        if (movement != null) return normal.size > 0 ? normal.first() : null;
+        return normal.size > 1 ? normal.get(1) : null;
+    }
+
+    private void poll() {
+        Outgoing next;
+        if (critical.size > 0) {
+            next = critical.removeFirst();
+        } else if (movement != null) {
+            next = movement;
+            movement = null;
+        } else {
+            next = normal.removeFirst();
+        }
+        queuedBytes -= next.length;
+        pool.free(next);
+    }
+
+    // Pasa al frame lo pendiente, en orden de prioridad, hasta MAX_BATCH_BYTES (siempre al menos un mensaje)
+    private void fillFrame() {
+        frame.clear();
+        frameTypes.clear();
+        frameLengths.clear();
+
+        Outgoing first = peek();
+        if (first == null) return;
+        frameBinary = first.binary;
+        Outgoing second = peekSecond();
+        if (!batching || first.binary || second == null || second.binary) {
+            append(first);
+            poll();
+            return;
+        }
+
+        ensureCapacity(BATCH_START.length);
+        frame.put(BATCH_START);
+        Outgoing next;
+        while ((next = peek()) != null) {
+            int needed = next.length + 1 + BATCH_END.length;
+            if (next.binary) break;
+            if (frameTypes.size > 0 && frame.position() + needed > MAX_BATCH_BYTES) break;
+            ensureCapacity(needed);
+            if (frameTypes.size > 0) frame.put((byte) ',');
+            append(next);
+            poll();
+        }
+        frame.put(BATCH_END);
+    }
+
+    private void append(Outgoing outgoing) {
+        ensureCapacity(outgoing.length);
+        frame.put(outgoing.data, 0, outgoing.length);
+        frameTypes.add(outgoing.type);
+        frameLengths.add(outgoing.length);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (frame.remaining() >= extra) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(frame.capacity() * 2, frame.position() + extra));
+        frame.flip();
+        bigger.put(frame);
+        frame = bigger;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                synchronized (lock) {
+                    while (running && (!flushRequested || isEmpty() || !sender.isOpen())) {
+                        lock.wait(sender.isOpen() ? 0 : 50);
+                    }
+                }
+
+                // Backpressure: esperar a que la librería haya pasado lo anterior al socket
+                if (sender.hasBufferedData()) {
+                    Thread.sleep(BACKPRESSURE_WAIT_MS);
+                    continue;
+                }
+
+                synchronized (lock) {
+                    fillFrame();
+                    // Si no ha cabido todo en el frame, el resto sale en la siguiente vuelta
+                    if (isEmpty()) flushRequested = false;
+                }
+                if (frameTypes.size == 0) continue;
+
+                frame.flip();
+                try {
+                    sender.send(frame, frameBinary, frameTypes, frameLengths);
+                } catch (Exception e) {
+                    System.err.println("Error enviando " + frameTypes.size + " mensaje(s): " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            // dispose()
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.project.clases;
+
+import java.util.Objects;
+
+// Última dirección no IDLE de cada handle, para dibujar al jugador mirando a ese lado cuando se para.
+// Se guarda también el id al que pertenece: si el handle pasa a otro jugador se vuelve a RIGHT.
+public class PlayerDirections {
+    private final byte[] directions = new byte[GameState.MAX_PLAYERS];
+    private final String[] ids = new String[GameState.MAX_PLAYERS];
+
+    public void update(GameState state) {
+        for (int i = 0; i < state.playerCount; i++) {
+            int handle = state.handles[i];
+
+            // Por valor: cada keyframe trae Strings nuevos aunque el jugador sea el mismo
+            if (!Objects.equals(ids[handle], state.ids[handle])) {
+                ids[handle] = state.ids[handle];
+                directions[handle] = GameState.STATE_RIGHT;
+            }
+
+            byte playerState = state.states[handle];
+            if (playerState != GameState.STATE_IDLE) {
+                directions[handle] = playerState;
+            }
+        }
+    }
+
+    public byte get(int handle) {return directions[handle];}
+}
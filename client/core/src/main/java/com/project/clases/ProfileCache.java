@@ -0,0 +1,37 @@
+package com.project.clases;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import org.json.JSONObject;
+
+// Perfiles de las cuentas que ya han entrado en esta ejecución, con su ETag para pedirlos con If-None-Match.
+// Solo en memoria, y solo se guardan cuando /api/login o /api/session han aceptado la sesión: un intento
+// de login con la contraseña mal no deja nada, ni aquí ni en disco. El perfil para el próximo arranque
+// es el de SessionStore.
+public class ProfileCache {
+    private static final ObjectMap<String, JSONObject> profiles = new ObjectMap<>();
+    private static final ObjectMap<String, String> etags = new ObjectMap<>();
+
+    private ProfileCache() {}
+
+    public static synchronized JSONObject get(String nickname) {
+        return nickname != null ? profiles.get(nickname) : null;
+    }
+
+    public static synchronized String etag(String nickname) {
+        return nickname != null ? etags.get(nickname) : null;
+    }
+
+    public static synchronized void put(JSONObject profile, String etag) {
+        String nickname = profile.optString("nickname", null);
+        if (nickname == null) return;
+        profiles.put(nickname, profile);
+        if (etag != null) etags.put(nickname, etag);
+        else etags.remove(nickname);
+    }
+
+    public static synchronized void clear() {
+        profiles.clear();
+        etags.clear();
+    }
+}
@@ -0,0 +1,67 @@
+package com.project.clases;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Preferences;
+
+import org.json.JSONObject;
+
+// Sesión guardada entre ejecuciones (Preferences): el token que devuelve /api/login y el último perfil
+// conocido. Con ella el juego arranca directamente en el menú y el token se comprueba en segundo plano.
+public class SessionStore {
+    private static final String PREFERENCES = "com.project.session";
+    private static final String TOKEN = "token";
+    private static final String PROFILE = "profile";
+    private static final String PROFILE_ETAG = "profileEtag";
+
+    // En Android cada llamada devuelve un objeto nuevo con su propio editor: los cambios y el flush
+    // tienen que hacerse sobre la misma instancia
+    private static Preferences preferences() {
+        return Gdx.app.getPreferences(PREFERENCES);
+    }
+
+    public static String getToken() {
+        String token = preferences().getString(TOKEN, null);
+        return token == null || token.isEmpty() ? null : token;
+    }
+
+    // Perfil tal como lo devuelve /api/usuario o /api/session; null si no hay o no se puede leer
+    public static JSONObject getProfile() {
+        String profile = preferences().getString(PROFILE, null);
+        if (profile == null || profile.isEmpty()) return null;
+        try {
+            return new JSONObject(profile);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // ETag del perfil guardado, para revalidarlo con /api/session sin volver a descargarlo
+    public static String getProfileEtag() {
+        String etag = preferences().getString(PROFILE_ETAG, null);
+        return etag == null || etag.isEmpty() ? null : etag;
+    }
+
+    public static void saveToken(String token) {
+        Preferences preferences = preferences();
+        preferences.putString(TOKEN, token);
+        preferences.remove(PROFILE);
+        preferences.remove(PROFILE_ETAG);
+        preferences.flush();
+    }
+
+    // Solo se guarda si hay token: el perfil sin sesión no sirve para entrar
+    public static void saveProfile(JSONObject profile, String etag) {
+        if (getToken() == null) return;
+        Preferences preferences = preferences();
+        preferences.putString(PROFILE, profile.toString());
+        if (etag != null) preferences.putString(PROFILE_ETAG, etag);
+        else preferences.remove(PROFILE_ETAG);
+        preferences.flush();
+    }
+
+    public static void clear() {
+        Preferences preferences = preferences();
+        preferences.clear();
+        preferences.flush();
+    }
+}
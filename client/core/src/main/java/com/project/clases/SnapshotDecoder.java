@@ -0,0 +1,244 @@
+package com.project.clases;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Decodifica los snapshots binarios de utilsSnapshots.js directamente sobre un GameState.
+// Los keyframes reemplazan el estado y los deltas solo traen los campos que han cambiado.
+// Los "update" en JSON también se vuelcan aquí, una sola vez por snapshot y sin pasar por JSONObject.
+public class SnapshotDecoder {
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+
+    private static final int FIELD_POSITION = 0x01;
+    private static final int FIELD_STATE = 0x02;
+    private static final int FIELD_TEAM = 0x04;
+    private static final int FIELD_GOLD = 0x08;
+    private static final int FIELD_IDENTITY = 0x10;
+
+    private static final int FLAG_ACK = 0x01;
+    private static final int FLAG_TIME = 0x02;
+
+    private static final int GOLD_UNCHANGED = 0xFF;
+    private static final float POSITION_SCALE = 16f;
+
+    private final byte[] scratch = new byte[255];
+    private final boolean[] seen = new boolean[GameState.MAX_PLAYERS];
+    private boolean hasKeyframe = false;
+    private float positionX, positionY; // Última posición leída por readPosition()
+
+    // Devuelve true si el estado ha cambiado. Los deltas que llegan antes del primer keyframe se ignoran.
+    public boolean decode(ByteBuffer buffer, GameState state) {
+        int kind = buffer.get();
+        int flags = buffer.get() & 0xFF;
+        long tick = buffer.getInt() & 0xFFFFFFFFL;
+        long serverTime = (flags & FLAG_TIME) != 0 ? buffer.getInt() & 0xFFFFFFFFL : -1;
+
+        if (kind == KEYFRAME) {
+            state.clear();
+            hasKeyframe = true;
+        } else if (kind != DELTA || !hasKeyframe) {
+            return false;
+        }
+        state.tick = tick;
+        state.serverTime = serverTime;
+
+        int records = buffer.get() & 0xFF;
+        for (int i = 0; i < records; i++) {
+            int handle = buffer.get() & 0xFF;
+            int mask = buffer.get() & 0xFF;
+            state.activate(handle);
+
+            if ((mask & FIELD_POSITION) != 0) {
+                state.positions[handle * 2] = (buffer.getShort() & 0xFFFF) / POSITION_SCALE;
+                state.positions[handle * 2 + 1] = (buffer.getShort() & 0xFFFF) / POSITION_SCALE;
+            }
+            if ((mask & FIELD_STATE) != 0) state.states[handle] = buffer.get();
+            if ((mask & FIELD_TEAM) != 0) state.teams[handle] = buffer.get();
+            if ((mask & FIELD_GOLD) != 0) state.hasGold[handle] = buffer.get() != 0;
+            if ((mask & FIELD_IDENTITY) != 0) {
+                state.setId(handle, readString(buffer));
+                state.nicknames[handle] = readString(buffer);
+            }
+        }
+
+        int removed = buffer.get() & 0xFF;
+        for (int i = 0; i < removed; i++) {
+            state.remove(buffer.get() & 0xFF);
+        }
+
+        int goldCount = buffer.get() & 0xFF;
+        if (goldCount != GOLD_UNCHANGED) {
+            state.goldCount = Math.min(goldCount, GameState.MAX_GOLD);
+            for (int i = 0; i < goldCount; i++) {
+                float x = (buffer.getShort() & 0xFFFF) / POSITION_SCALE;
+                float y = (buffer.getShort() & 0xFFFF) / POSITION_SCALE;
+                if (i < GameState.MAX_GOLD) {
+                    state.goldPositions[i * 2] = x;
+                    state.goldPositions[i * 2 + 1] = y;
+                }
+            }
+        }
+
+        state.hasAck = (flags & FLAG_ACK) != 0;
+        if (state.hasAck) {
+            state.ackSequence = buffer.getInt();
+            state.ackSteps = buffer.getShort() & 0xFFFF;
+            state.running = buffer.get() != 0;
+        }
+        return true;
+    }
+
+    // Vuelca un update JSON (su "gameState" y el ack) leyéndolo campo a campo, sin construir JSONObject.
+    // Cada id conserva su handle entre snapshots. Devuelve false si el mensaje no trae gameState.
+    public boolean decodeJson(MessageReader update, GameState state) {
+        boolean hasGameState = false;
+        boolean hasTick = false;
+        long tick = 0;
+        long serverTime = -1;
+        boolean hasAck = false;
+        int ackSequence = 0, ackSteps = 0;
+        boolean running = false;
+
+        update.rewind();
+        while (update.nextField()) {
+            if (update.fieldIs("gameState")) {
+                readGameState(update, state);
+                hasGameState = true;
+            } else if (update.fieldIs("tick")) {
+                tick = update.readLong();
+                hasTick = true;
+            } else if (update.fieldIs("serverTime")) {
+                serverTime = update.readLong();
+            } else if (update.fieldIs("ack")) {
+                update.beginObject();
+                while (update.nextField()) {
+                    if (update.fieldIs("seq")) ackSequence = (int) update.readLong();
+                    else if (update.fieldIs("steps")) ackSteps = (int) update.readLong();
+                    else if (update.fieldIs("running")) running = update.readBoolean();
+                }
+                update.endObject();
+                hasAck = true;
+            }
+        }
+        if (!hasGameState) return false;
+
+        state.hasAck = hasAck;
+        if (hasAck) {
+            state.ackSequence = ackSequence;
+            state.ackSteps = ackSteps;
+            state.running = running;
+        }
+
+        // Los servidores antiguos no mandan el tick del lobby
+        state.tick = hasTick ? tick : state.tick + 1;
+        state.serverTime = serverTime;
+        return true;
+    }
+
+    private void readGameState(MessageReader reader, GameState state) {
+        state.goldCount = 0;
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (reader.fieldIs("players")) {
+                reader.beginArray();
+                while (reader.nextElement()) readPlayer(reader, state);
+                reader.endArray();
+            } else if (reader.fieldIs("gold")) {
+                reader.beginArray();
+                while (reader.nextElement()) readGold(reader, state);
+                reader.endArray();
+            }
+        }
+        reader.endObject();
+
+        // Los jugadores que ya no vienen en el snapshot se eliminan
+        for (int i = state.playerCount - 1; i >= 0; i--) {
+            int handle = state.handles[i];
+            if (!seen[handle]) {
+                state.remove(handle);
+            }
+            seen[handle] = false;
+        }
+    }
+
+    // El id puede venir después de los demás campos: se guardan y se vuelcan al cerrar el objeto
+    private void readPlayer(MessageReader reader, GameState state) {
+        String id = null;
+        String nickname = null;
+        float x = 0, y = 0;
+        byte playerState = GameState.STATE_IDLE;
+        byte team = -1;
+        boolean hasGold = false;
+
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (reader.fieldIs("id")) id = reader.readString();
+            else if (reader.fieldIs("nickname")) nickname = reader.readString();
+            else if (reader.fieldIs("state")) playerState = GameState.stateCode(reader.readString());
+            else if (reader.fieldIs("team")) team = GameState.teamCode(reader.readString());
+            else if (reader.fieldIs("hasGold")) hasGold = reader.readBoolean();
+            else if (reader.fieldIs("position")) {
+                readPosition(reader);
+                x = positionX;
+                y = positionY;
+            }
+        }
+        reader.endObject();
+        if (id == null) return;
+
+        int handle = state.findHandle(id);
+        if (handle == -1) {
+            handle = state.freeHandle();
+            if (handle == -1) return;
+            state.activate(handle);
+            state.setId(handle, id);
+        }
+        seen[handle] = true;
+
+        state.positions[handle * 2] = x;
+        state.positions[handle * 2 + 1] = y;
+        state.states[handle] = playerState;
+        state.teams[handle] = team;
+        state.hasGold[handle] = hasGold;
+        state.nicknames[handle] = nickname;
+    }
+
+    private void readGold(MessageReader reader, GameState state) {
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (reader.fieldIs("position")) {
+                readPosition(reader);
+                if (state.goldCount < GameState.MAX_GOLD) {
+                    state.goldPositions[state.goldCount * 2] = positionX;
+                    state.goldPositions[state.goldCount * 2 + 1] = positionY;
+                    state.goldCount++;
+                }
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readPosition(MessageReader reader) {
+        positionX = 0;
+        positionY = 0;
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (reader.fieldIs("x")) positionX = (float) reader.readDouble();
+            else if (reader.fieldIs("y")) positionY = (float) reader.readDouble();
+        }
+        reader.endObject();
+    }
+
+    // Tras una reconexión hay que esperar un keyframe nuevo
+    public void reset() {
+        hasKeyframe = false;
+    }
+
+    private String readString(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        if (length == 0) return null;
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
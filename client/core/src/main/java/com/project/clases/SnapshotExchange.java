@@ -0,0 +1,36 @@
+package com.project.clases;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Triple buffer entre el hilo del WebSocket (productor) y el de render (consumidor).
+// El productor escribe en su buffer y lo intercambia con el del medio; el consumidor
+// se queda con el del medio solo si hay uno nuevo. Nadie se bloquea y no se reserva memoria.
+public class SnapshotExchange {
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    private final GameState[] buffers = {new GameState(), new GameState(), new GameState()};
+
+    // Índice del buffer del medio y bit FRESH si el productor ha publicado desde la última lectura
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    private int back = 0;  // Solo lo toca el productor
+    private int front = 2; // Solo lo toca el consumidor
+    private boolean hasSnapshot = false;
+
+    // Hilo del WebSocket: copia el estado decodificado y lo deja listo para el render
+    public void publish(GameState source) {
+        buffers[back].copyFrom(source);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    // Hilo de render: devuelve el último tick completo, o null si todavía no ha llegado ninguno.
+    // El estado devuelto no cambia hasta la siguiente llamada.
+    public GameState acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+            hasSnapshot = true;
+        }
+        return hasSnapshot ? buffers[front] : null;
+    }
+}
@@ -0,0 +1,160 @@
+package com.project.clases;
+
+// Guarda los últimos snapshots con la hora a la que se generaron y dibuja el mundo un poco por detrás
+// de ellos, interpolando las posiciones entre dos ticks. Así los paquetes que llegan a destiempo (Wi-Fi, 4G)
+// no se ven como tirones. La hora es la del servidor pasada al reloj local (GameState.producedAt); sin
+// reloj sincronizado es la de llegada. El retardo cubre el tránsito medio más el jitter medido.
+// Solo se usa desde el hilo de render.
+public class SnapshotInterpolator {
+    private static final int BUFFER_SIZE = 32;
+
+    private static final double MIN_DELAY = 0.04;
+    private static final double MAX_DELAY = 0.25;
+    private static final double JITTER_MULTIPLIER = 3.0;
+    private static final double DELAY_ADJUST_SPEED = 0.1;  // Segundos de retardo que puede cambiar por segundo
+    private static final double MAX_EXTRAPOLATION = 0.05;  // Como mucho unos 2 ticks más allá del último snapshot
+    private static final double PAUSE_INTERVAL = 0.25;     // El servidor no envía nada si no hay cambios: no es jitter
+    private static final double SMOOTHING = 0.1;
+
+    private static final double NANOS = 1e9;
+
+    private final GameState[] buffer = new GameState[BUFFER_SIZE];
+    private final long[] times = new long[BUFFER_SIZE];
+    private int newest = -1;
+    private int count = 0;
+    private long lastTick = -1;
+
+    private double meanInterval = 0.02;
+    private double jitter = 0;
+    private double meanTransit = 0;   // Llegada - generación; 0 sin reloj sincronizado
+    private double transitJitter = 0;
+    private double delay = 0.1;
+    private long lastUpdate = 0;
+
+    private final GameState output = new GameState();
+
+    public SnapshotInterpolator() {
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            buffer[i] = new GameState();
+        }
+    }
+
+    // Añade el snapshot si es un tick nuevo
+    public void push(GameState state) {
+        if (state.tick == lastTick) return;
+        lastTick = state.tick;
+
+        long time = state.producedAt;
+        if (count > 0) {
+            // Al sincronizarse el reloj la línea de tiempo retrocede el tránsito: se mantiene el orden
+            time = Math.max(time, times[newest] + 1);
+
+            double interval = (time - times[newest]) / NANOS;
+            if (interval < PAUSE_INTERVAL) {
+                meanInterval += (interval - meanInterval) * SMOOTHING;
+                jitter += (Math.abs(interval - meanInterval) - jitter) * SMOOTHING;
+            }
+        }
+        double transit = (state.receivedAt - time) / NANOS;
+        meanTransit += (transit - meanTransit) * SMOOTHING;
+        transitJitter += (Math.abs(transit - meanTransit) - transitJitter) * SMOOTHING;
+
+        newest = (newest + 1) % BUFFER_SIZE;
+        buffer[newest].copyFrom(state);
+        times[newest] = time;
+        if (count < BUFFER_SIZE) count++;
+    }
+
+    // Estado a dibujar en este frame. Devuelve null si aún no hay ningún snapshot.
+    public GameState update(long now) {
+        if (count == 0) return null;
+
+        // El retardo se mueve poco a poco hacia el objetivo para que el reloj no dé saltos.
+        // Con hora del servidor el jitter de red aparece en el tránsito; sin ella, en los intervalos.
+        double target = meanTransit + Math.max(MIN_DELAY, Math.min(MAX_DELAY,
+                meanInterval + (jitter + transitJitter) * JITTER_MULTIPLIER));
+        if (lastUpdate != 0) {
+            double maxChange = (now - lastUpdate) / NANOS * DELAY_ADJUST_SPEED;
+            delay += Math.max(-maxChange, Math.min(maxChange, target - delay));
+        }
+        lastUpdate = now;
+
+        long renderTime = now - (long) (delay * NANOS);
+
+        // Más allá del último snapshot: extrapolación limitada
+        if (count == 1 || renderTime >= times[newest]) {
+            output.copyFrom(buffer[newest]);
+            if (count > 1) extrapolate(previous(newest), newest, renderTime);
+            return output;
+        }
+
+        // Buscar los dos snapshots que rodean renderTime
+        int older = newest;
+        for (int i = 1; i < count; i++) {
+            int candidate = previous(older);
+            older = candidate;
+            if (times[candidate] <= renderTime) break;
+        }
+        if (times[older] > renderTime) {
+            output.copyFrom(buffer[older]); // Más antiguo que todo el buffer
+            return output;
+        }
+
+        int newer = (older + 1) % BUFFER_SIZE;
+        double alpha = (double) (renderTime - times[older]) / (times[newer] - times[older]);
+        interpolate(buffer[older], buffer[newer], (float) alpha);
+        return output;
+    }
+
+    public float getDelay() {return (float) delay;}
+
+    public float getJitter() {return (float) (jitter + transitJitter);}
+
+    // Tras una reconexión los snapshots antiguos ya no sirven
+    public void reset() {
+        newest = -1;
+        count = 0;
+        lastTick = -1;
+        lastUpdate = 0;
+        meanTransit = 0;
+        transitJitter = 0;
+    }
+
+    private int previous(int index) {
+        return (index + BUFFER_SIZE - 1) % BUFFER_SIZE;
+    }
+
+    // Los datos discretos (equipo, oro, estado) son los del snapshot anterior; solo se mezclan posiciones
+    private void interpolate(GameState from, GameState to, float alpha) {
+        output.copyFrom(from);
+        for (int i = 0; i < output.playerCount; i++) {
+            int handle = output.handles[i];
+            if (!samePlayer(from, to, handle)) continue;
+
+            output.positions[handle * 2] = from.getX(handle) + (to.getX(handle) - from.getX(handle)) * alpha;
+            output.positions[handle * 2 + 1] = from.getY(handle) + (to.getY(handle) - from.getY(handle)) * alpha;
+        }
+    }
+
+    private void extrapolate(int from, int to, long renderTime) {
+        double span = (times[to] - times[from]) / NANOS;
+        if (span <= 0) return;
+        double ahead = Math.min(MAX_EXTRAPOLATION, (renderTime - times[to]) / NANOS);
+        float factor = (float) (ahead / span);
+
+        GameState a = buffer[from];
+        GameState b = buffer[to];
+        for (int i = 0; i < output.playerCount; i++) {
+            int handle = output.handles[i];
+            // Un jugador quieto no se extrapola: el servidor deja de enviar cuando no hay cambios
+            if (b.states[handle] == GameState.STATE_IDLE || !samePlayer(a, b, handle)) continue;
+
+            output.positions[handle * 2] += (b.getX(handle) - a.getX(handle)) * factor;
+            output.positions[handle * 2 + 1] += (b.getY(handle) - a.getY(handle)) * factor;
+        }
+    }
+
+    private static boolean samePlayer(GameState a, GameState b, int handle) {
+        return a.active[handle] && b.active[handle] && a.ids[handle] != null && a.ids[handle].equals(b.ids[handle]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.project.clases;
+
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.OrderedMap;
+
+// Tiempos por etapa de un proceso con partes en paralelo (el login). Cada etapa mide desde que empieza
+// hasta que acaba; el total es desde que se creó. Se usa solo desde el hilo de render.
+public class StageTimings {
+    private final long startedAt = System.nanoTime();
+    private final ObjectMap<String, Long> begun = new ObjectMap<>();
+    private final OrderedMap<String, String> finished = new OrderedMap<>();
+
+    public void begin(String stage) {
+        begun.put(stage, System.nanoTime());
+    }
+
+    public void end(String stage) {
+        end(stage, null);
+    }
+
+    // note sale entre paréntesis junto al tiempo (p. ej. "caché")
+    public void end(String stage, String note) {
+        if (finished.containsKey(stage)) return;
+        Long start = begun.get(stage);
+        long ms = (System.nanoTime() - (start != null ? start : startedAt)) / 1000000L;
+        finished.put(stage, ms + " ms" + (note != null ? " (" + note + ")" : ""));
+    }
+
+    public boolean isDone(String stage) {
+        return finished.containsKey(stage);
+    }
+
+    public boolean allDone(String... stages) {
+        for (String stage : stages) {
+            if (!finished.containsKey(stage)) return false;
+        }
+        return true;
+    }
+
+    public long elapsedMs() {
+        return (System.nanoTime() - startedAt) / 1000000L;
+    }
+
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        for (ObjectMap.Entry<String, String> entry : finished) {
+            builder.append(entry.key).append(' ').append(entry.value).append(", ");
+        }
+        for (ObjectMap.Entry<String, Long> entry : begun) {
+            if (!finished.containsKey(entry.key)) builder.append(entry.key).append(" pendiente, ");
+        }
+        return builder.append("total ").append(elapsedMs()).append(" ms").toString();
+    }
+}
@@ -0,0 +1,156 @@
+package com.project.clases;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Capas estáticas del mapa (game_data.json) subidas una sola vez a la GPU con SpriteCache.
+// Antes drawMap recorría el JSON de las cinco capas en cada frame (hasta ~5000 batch.draw); ahora el mapa
+// se parte en bloques de chunkTiles × chunkTiles casillas y cada bloque se dibuja con una llamada por
+// textura, y solo si se ve. Dentro de cada bloque las capas se añaden en su orden, así que se pintan
+// igual que antes.
+public class TileMapCache implements Disposable {
+    // Con índices de 16 bits un SpriteCache admite como mucho 8191 sprites; los mapas grandes usan varios
+    private static final int MAX_SPRITES_PER_CACHE = 8191;
+
+    public interface LayerFrames {
+        // Frames del tileset de la capa, o null si la capa no se dibuja
+        TextureRegion[][] forLayer(String layerName);
+    }
+
+    private final Array<SpriteCache> caches = new Array<>();
+    private final IntArray cachedSprites = new IntArray(); // Sprites ya ocupados en cada SpriteCache
+    private final IntArray chunkCaches = new IntArray(); // Índice en caches de cada bloque
+    private final IntArray chunkIds = new IntArray();    // Id del bloque dentro de su SpriteCache
+    private final Array<Rectangle> chunkBounds = new Array<>(); // Zona del mundo que ocupa cada bloque
+
+    public TileMapCache(JSONObject level, LayerFrames frames, int chunkTiles) throws JSONException {
+        // Lo que antes se leía del JSON en cada frame se pasa una vez a arrays
+        JSONArray layers = level.getJSONArray("layers");
+        Array<TextureRegion[][]> layerFrames = new Array<>();
+        Array<int[][]> layerTiles = new Array<>();
+        IntArray tileWidths = new IntArray();
+        IntArray tileHeights = new IntArray();
+        int rows = 0, cols = 0;
+
+        for (int i = 0; i < layers.length(); i++) {
+            JSONObject layer = layers.getJSONObject(i);
+            TextureRegion[][] frameSet = frames.forLayer(layer.getString("name"));
+            if (frameSet == null) continue;
+
+            JSONArray tileMap = layer.getJSONArray("tileMap");
+            int[][] tiles = new int[tileMap.length()][];
+            for (int row = 0; row < tiles.length; row++) {
+                JSONArray rowTiles = tileMap.getJSONArray(row);
+                tiles[row] = new int[rowTiles.length()];
+                for (int col = 0; col < tiles[row].length; col++) tiles[row][col] = rowTiles.getInt(col);
+                cols = Math.max(cols, tiles[row].length);
+            }
+            rows = Math.max(rows, tiles.length);
+
+            layerFrames.add(frameSet);
+            layerTiles.add(tiles);
+            tileWidths.add(layer.getInt("tilesWidth"));
+            tileHeights.add(layer.getInt("tilesHeight"));
+        }
+
+        for (int chunkRow = 0; chunkRow < rows; chunkRow += chunkTiles) {
+            for (int chunkCol = 0; chunkCol < cols; chunkCol += chunkTiles) {
+                buildChunk(layerFrames, layerTiles, tileWidths, tileHeights, chunkRow, chunkCol, chunkTiles);
+            }
+        }
+    }
+
+    private void buildChunk(Array<TextureRegion[][]> layerFrames, Array<int[][]> layerTiles, IntArray tileWidths,
+                            IntArray tileHeights, int firstRow, int firstCol, int chunkTiles) {
+        int count = 0;
+        for (int[][] tiles : layerTiles) {
+            for (int row = firstRow; row < Math.min(firstRow + chunkTiles, tiles.length); row++) {
+                for (int col = firstCol; col < Math.min(firstCol + chunkTiles, tiles[row].length); col++) {
+                    if (tiles[row][col] != -1) count++;
+                }
+            }
+        }
+        if (count == 0) return;
+
+        SpriteCache cache = cacheWithRoom(count);
+        Rectangle bounds = new Rectangle();
+        boolean empty = true;
+        cache.beginCache();
+        for (int i = 0; i < layerTiles.size; i++) {
+            int[][] tiles = layerTiles.get(i);
+            TextureRegion[][] frameSet = layerFrames.get(i);
+            int tileWidth = tileWidths.get(i);
+            int tileHeight = tileHeights.get(i);
+
+            for (int row = firstRow; row < Math.min(firstRow + chunkTiles, tiles.length); row++) {
+                // La fila 0 del JSON es la de arriba del mapa
+                float y = (tiles.length - 1 - row) * tileHeight;
+                for (int col = firstCol; col < Math.min(firstCol + chunkTiles, tiles[row].length); col++) {
+                    int tile = tiles[row][col];
+                    if (tile == -1) continue;
+                    TextureRegion region = frameSet[tile / frameSet[0].length][tile % frameSet[0].length];
+                    float x = col * tileWidth;
+                    cache.add(region, x, y);
+
+                    tileBounds.set(x, y, region.getRegionWidth(), region.getRegionHeight());
+                    if (empty) bounds.set(tileBounds);
+                    else bounds.merge(tileBounds);
+                    empty = false;
+                }
+            }
+        }
+        chunkIds.add(cache.endCache());
+        chunkCaches.add(caches.size - 1);
+        chunkBounds.add(bounds);
+    }
+
+    private final Rectangle tileBounds = new Rectangle();
+
+    private SpriteCache cacheWithRoom(int sprites) {
+        if (caches.isEmpty() || cachedSprites.peek() + sprites > MAX_SPRITES_PER_CACHE) {
+            caches.add(new SpriteCache(MAX_SPRITES_PER_CACHE, true));
+            cachedSprites.add(0);
+        }
+        cachedSprites.incr(caches.size - 1, sprites);
+        return caches.peek();
+    }
+
+    // Solo se dibujan los bloques que tocan view (lo que ve la cámara)
+    public void draw(Matrix4 projection, Rectangle view) {
+        // SpriteCache no activa la mezcla como SpriteBatch, y la espuma y la decoración tienen transparencia
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        for (int c = 0; c < caches.size; c++) {
+            SpriteCache cache = caches.get(c);
+            boolean begun = false;
+            for (int i = 0; i < chunkIds.size; i++) {
+                if (chunkCaches.get(i) != c || !chunkBounds.get(i).overlaps(view)) continue;
+                if (!begun) {
+                    cache.setProjectionMatrix(projection);
+                    cache.begin();
+                    begun = true;
+                }
+                cache.draw(chunkIds.get(i));
+            }
+            if (begun) cache.end();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (SpriteCache cache : caches) cache.dispose();
+        caches.clear();
+    }
+}
@@ -0,0 +1,111 @@
+package com.project.clases;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+
+// Bytes por tipo de mensaje: tamaño sin comprimir (raw) y lo que realmente viaja por el socket (wire).
+// MeteredDeflateExtension anota cada frame y WebSockets asigna el total al tipo del mensaje.
+public class TransportStats {
+
+    public static class TypeStats {
+        public long sentMessages, sentRawBytes, sentWireBytes;
+        public long receivedMessages, receivedRawBytes, receivedWireBytes;
+    }
+
+    private final ObjectMap<String, TypeStats> byType = new ObjectMap<>();
+
+    // Frames pendientes de asignar a un mensaje. Los envíos van bajo el lock de WebSockets
+    // y las recepciones siempre en el hilo del WebSocket, así que no se mezclan.
+    private long pendingSentRaw, pendingSentWire;
+    private long pendingReceivedRaw, pendingReceivedWire;
+
+    void frameSent(int raw, int wire) {
+        pendingSentRaw += raw;
+        pendingSentWire += wire;
+    }
+
+    void frameReceived(int raw, int wire) {
+        pendingReceivedRaw += raw;
+        pendingReceivedWire += wire;
+    }
+
+    // Un frame enviado con uno o varios mensajes (batch): sus bytes se reparten en proporción al tamaño de
+    // cada mensaje. Sin extensión negociada no se anota ningún frame: raw y wire son la longitud del frame.
+    public synchronized void messagesSent(Array<String> types, IntArray lengths, int frameLength) {
+        long raw = pendingSentRaw != 0 ? pendingSentRaw : frameLength;
+        long wire = pendingSentRaw != 0 ? pendingSentWire : frameLength;
+        long total = 0;
+        for (int i = 0; i < lengths.size; i++) total += lengths.get(i);
+        for (int i = 0; i < types.size; i++) {
+            TypeStats stats = get(types.get(i));
+            stats.sentMessages++;
+            stats.sentRawBytes += total == 0 ? 0 : raw * lengths.get(i) / total;
+            stats.sentWireBytes += total == 0 ? 0 : wire * lengths.get(i) / total;
+        }
+        pendingSentRaw = 0;
+        pendingSentWire = 0;
+    }
+
+    public synchronized void messageReceived(String type, int length) {
+        TypeStats stats = get(type);
+        stats.receivedMessages++;
+        stats.receivedRawBytes += pendingReceivedRaw != 0 ? pendingReceivedRaw : length;
+        stats.receivedWireBytes += pendingReceivedRaw != 0 ? pendingReceivedWire : length;
+        pendingReceivedRaw = 0;
+        pendingReceivedWire = 0;
+    }
+
+    // Copia los totales actuales (para calcular ritmos sin bloquear los envíos mucho tiempo)
+    public synchronized void copyTotals(ObjectMap<String, TypeStats> into) {
+        for (ObjectMap.Entry<String, TypeStats> entry : byType.entries()) {
+            TypeStats copy = into.get(entry.key);
+            if (copy == null) {
+                copy = new TypeStats();
+                into.put(entry.key, copy);
+            }
+            TypeStats stats = entry.value;
+            copy.sentMessages = stats.sentMessages;
+            copy.sentRawBytes = stats.sentRawBytes;
+            copy.sentWireBytes = stats.sentWireBytes;
+            copy.receivedMessages = stats.receivedMessages;
+            copy.receivedRawBytes = stats.receivedRawBytes;
+            copy.receivedWireBytes = stats.receivedWireBytes;
+        }
+    }
+
+    private TypeStats get(String type) {
+        if (type == null) type = "unknown";
+        TypeStats stats = byType.get(type);
+        if (stats == null) {
+            stats = new TypeStats();
+            byType.put(type, stats);
+        }
+        return stats;
+    }
+
+    // Una línea por tipo: mensajes, bytes sin comprimir -> bytes enviados/recibidos y el ratio
+    public synchronized String summary() {
+        StringBuilder builder = new StringBuilder();
+        for (ObjectMap.Entry<String, TypeStats> entry : byType.entries()) {
+            TypeStats stats = entry.value;
+            builder.append(entry.key);
+            if (stats.sentMessages > 0) {
+                builder.append(" enviados ").append(stats.sentMessages)
+                        .append(" (").append(stats.sentRawBytes).append(" -> ").append(stats.sentWireBytes)
+                        .append(" B, ").append(ratio(stats.sentWireBytes, stats.sentRawBytes)).append("%)");
+            }
+            if (stats.receivedMessages > 0) {
+                builder.append(" recibidos ").append(stats.receivedMessages)
+                        .append(" (").append(stats.receivedRawBytes).append(" -> ").append(stats.receivedWireBytes)
+                        .append(" B, ").append(ratio(stats.receivedWireBytes, stats.receivedRawBytes)).append("%)");
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static long ratio(long wire, long raw) {
+        return raw == 0 ? 100 : wire * 100 / raw;
+    }
+}
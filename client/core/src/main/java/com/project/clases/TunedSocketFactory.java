@@ -0,0 +1,67 @@
+package com.project.clases;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+
+// Sockets TLS para el WebSocket con las opciones de NetworkConfig aplicadas antes de conectar.
+// Java-WebSocket crea un SSLContext nuevo en cada conexión wss si no se le da una factoría, así que
+// cada reconexión repetía el handshake TLS completo. Con una sola factoría compartida la caché de
+// sesiones del SSLContext permite reanudar la sesión (un RTT menos y sin volver a validar certificados).
+// TCP_NODELAY y SO_REUSEADDR los aplica la propia librería (setTcpNoDelay, setReuseAddr).
+public class TunedSocketFactory extends SocketFactory {
+    private static TunedSocketFactory shared;
+
+    private final SSLSocketFactory delegate;
+
+    private TunedSocketFactory(SSLSocketFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    public static synchronized TunedSocketFactory shared() throws Exception {
+        if (shared == null) {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            context.getClientSessionContext().setSessionTimeout(NetworkConfig.tlsSessionTimeoutSeconds);
+            shared = new TunedSocketFactory(context.getSocketFactory());
+        }
+        return shared;
+    }
+
+    // La librería crea el socket sin conectar y lo conecta ella: es el momento de ajustar los buffers
+    @Override
+    public Socket createSocket() throws IOException {
+        return configure(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return configure(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return configure(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private static Socket configure(Socket socket) throws IOException {
+        socket.setKeepAlive(NetworkConfig.socketKeepAlive);
+        if (NetworkConfig.socketReceiveBuffer > 0) socket.setReceiveBufferSize(NetworkConfig.socketReceiveBuffer);
+        if (NetworkConfig.socketSendBuffer > 0) socket.setSendBufferSize(NetworkConfig.socketSendBuffer);
+        return socket;
+    }
+}
@@ -2,6 +2,7 @@ package com.project.screens;
 
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
@@ -9,23 +10,33 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.project.WebSockets;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.project.clases.AttackEffect;
+import com.project.clases.GameAtlas;
+import com.project.clases.GameState;
+import com.project.clases.InputPacket;
+import com.project.clases.InputSampler;
 import com.project.clases.Joystick;
+import com.project.clases.MessageWriter;
+import com.project.clases.MovementPredictor;
+import com.project.clases.NetworkConfig;
+import com.project.clases.PlayerDirections;
+import com.project.clases.SnapshotInterpolator;
+import com.project.clases.TileMapCache;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 public class GameScreen implements Screen {
     private final Game game;
@@ -36,33 +47,47 @@ public class GameScreen implements Screen {
     private BitmapFont font, titleFont;
     private WebSockets webSockets;
     private GlyphLayout layout;
+
+    // Nicknames: fuente FreeType con el borde negro ya dibujado en cada glifo, así que cada nombre es una
+    // sola pasada (antes ocho copias desplazadas en negro más el relleno). El GlyphLayout de cada handle se
+    // guarda y solo se rehace si cambia el nombre o si lleva oro (cambia el color).
+    private BitmapFont nameFont;
+    private final GlyphLayout[] nameLayouts = new GlyphLayout[GameState.MAX_PLAYERS];
+    private final String[] nameLayoutTexts = new String[GameState.MAX_PLAYERS];
+    private final boolean[] nameLayoutGold = new boolean[GameState.MAX_PLAYERS];
     private OrthographicCamera camera;
 
-    private JSONObject latestGameState;
+    private GameState latestSnapshot; // Tick completo del frame actual, no cambia hasta el siguiente render
+    private GameState renderState;    // Snapshots interpolados con algo de retardo, para los demás jugadores y el oro
+    private final SnapshotInterpolator interpolator = new SnapshotInterpolator();
 
     private float playerX, playerY;
 
     private Joystick joystick;
 
     private Vector2 movementOutput;
+    private final InputSampler inputSampler = new InputSampler(); // Envío del joystick a ritmo fijo
+    private final MessageWriter messageWriter = new MessageWriter();
+    private final InputPacket inputPacket = new InputPacket();     // updateMovement en binario (7 bytes)
+    private final boolean binaryInput = InputPacket.isEnabled();
+    private MovementPredictor predictor; // Predicción del jugador local, necesita el mapa
+    private int sessionEpoch = 0;
+    private boolean showNetworkOverlay = NetworkConfig.showNetworkOverlay;
 
-    private Texture warriorBlueSheet;
-    private Texture warriorRedSheet;
-    private Texture warriorPurpleSheet;
-    private Texture warriorYellowSheet;
-    private Texture goldSheet;
+    // Aviso centrado (cuenta atrás, inicio, golpes, fin de partida)
+    private String bannerText;
+    private float bannerTimer;
+    private int localHandle = -1;
 
-    private Texture grassSheet;
-    private Texture waterSheet;
-    private Texture foamSheet;
-    private Texture decoSheet;
-    private Texture towerSheet;
+    private GameAtlas atlas; // Todas las hojas de sprites, normalmente en una sola textura
 
     private TextureRegion[][] blueFrames;
     private TextureRegion[][] redFrames;
     private TextureRegion[][] purpleFrames;
     private TextureRegion[][] yellowFrames;
     private TextureRegion[][] goldFrames;
+    private TextureRegion[][][] teamFrames; // Indexado por código de equipo de GameState
+    private TextureRegion[][][] teamFramesLeft; // Los mismos frames ya volteados, para mirar a la izquierda
 
     private TextureRegion[][] waterFrames;
     private TextureRegion[][] foamFrames;
@@ -71,9 +96,20 @@ public class GameScreen implements Screen {
     private TextureRegion[][] towerFrames;
 
     private JSONObject gameData;
+    private TileMapCache mapCache; // Capas estáticas del mapa, construidas una vez en initTextures
+    private static final int MAP_CHUNK_TILES = 8;
+
+    // Zona del mundo que ve la cámara en este frame: lo que queda fuera no se dibuja. Los márgenes cubren
+    // lo que el sprite sobresale de su posición (y el nickname encima de los jugadores).
+    private final Rectangle viewBounds = new Rectangle();
+    private static final float PLAYER_CULL_MARGIN = 128f;
+    private static final float ATTACK_CULL_MARGIN = 96f;
+    private static final float GOLD_CULL_MARGIN = 96f;
 
     private float animationTimer = 0f;
     private float frameDuration = 0.1f; // 10 fps
+    private static final float ATTACK_DURATION = 0.5f;
+    private static final float MAX_ATTACK_WAIT = 0.5f; // Un ataque de otro jugador nunca espera más que esto para empezar
 
     private Texture buttonTexture;
     private float buttonX;
@@ -84,9 +120,10 @@ public class GameScreen implements Screen {
     private float timeSinceLastPress = 0f;
     private boolean buttonEnabled = true;
 
-    private Map<String, String> playerDirections = new HashMap<>();
+    private final PlayerDirections playerDirections = new PlayerDirections();
 
     private final ArrayList<AttackEffect> activeAttacks = new ArrayList<>();
+    private final int[] activeAttackCount = new int[GameState.MAX_PLAYERS]; // Ataques en curso por handle
 
 
     public GameScreen(Game game, WebSockets webSockets) throws JSONException {
@@ -110,53 +147,71 @@ public class GameScreen implements Screen {
         font = new BitmapFont();
         titleFont = new BitmapFont();
 
+        FreeTypeFontGenerator generator = new FreeTypeFontGenerator(Gdx.files.internal("Roboto-Italic-VariableFont_wdth,wght.ttf"));
+        FreeTypeFontGenerator.FreeTypeFontParameter parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
+        parameter.size = 16;
+        parameter.color = Color.WHITE;       // Blanco para poder teñirlo de dorado al dibujar
+        parameter.borderWidth = 1.5f;
+        parameter.borderColor = Color.BLACK; // El tinte no cambia el negro: el borde sale siempre negro
+        parameter.minFilter = Texture.TextureFilter.Linear;
+        parameter.magFilter = Texture.TextureFilter.Linear;
+        nameFont = generator.generateFont(parameter);
+        generator.dispose();
+
         joystick = new Joystick(175, 175, 75);
 
         initTextures();
+
+        predictor = new MovementPredictor(gameData);
     }
 
     private void initTextures() throws JSONException {
         //Animaciones
-        warriorBlueSheet = new Texture("Troops/Warrior/Blue/Warrior_Blue.png");
-        warriorRedSheet = new Texture("Troops/Warrior/Red/Warrior_Red.png");
-        warriorPurpleSheet = new Texture("Troops/Warrior/Purple/Warrior_Purple.png");
-        warriorYellowSheet = new Texture("Troops/Warrior/Yellow/Warrior_Yellow.png");
-        goldSheet = new Texture("G_Spawn.png");
-
-        blueFrames = extractFrames(warriorBlueSheet, 192, 192, 8, 6);
-        redFrames = extractFrames(warriorRedSheet, 192, 192, 8, 6);
-        purpleFrames = extractFrames(warriorPurpleSheet, 192, 192, 8, 6);
-        yellowFrames = extractFrames(warriorYellowSheet, 192, 192, 8, 6);
-        goldFrames = extractFrames(goldSheet, 128, 128, 8, 7);
+        atlas = new GameAtlas();
+
+        blueFrames = atlas.frames(GameAtlas.WARRIOR_BLUE, 192, 192, 8, 6);
+        redFrames = atlas.frames(GameAtlas.WARRIOR_RED, 192, 192, 8, 6);
+        purpleFrames = atlas.frames(GameAtlas.WARRIOR_PURPLE, 192, 192, 8, 6);
+        yellowFrames = atlas.frames(GameAtlas.WARRIOR_YELLOW, 192, 192, 8, 6);
+        goldFrames = atlas.frames(GameAtlas.GOLD, 128, 128, 1, 7);
+
+        teamFrames = new TextureRegion[4][][];
+        teamFrames[GameState.TEAM_BLUE] = blueFrames;
+        teamFrames[GameState.TEAM_PURPLE] = purpleFrames;
+        teamFrames[GameState.TEAM_RED] = redFrames;
+        teamFrames[GameState.TEAM_YELLOW] = yellowFrames;
+
+        // Se voltean una vez aquí en vez de crear una TextureRegion volteada por jugador y frame
+        teamFramesLeft = new TextureRegion[teamFrames.length][][];
+        for (int team = 0; team < teamFrames.length; team++) {
+            teamFramesLeft[team] = flippedFrames(teamFrames[team]);
+        }
 
         FileHandle file = Gdx.files.internal("game_data.json");
         String jsonString = file.readString();
         gameData = new JSONObject(jsonString);
 
-        grassSheet = new Texture("tilemap_Flat.png");
-        waterSheet = new Texture("water.png");
-        foamSheet = new Texture("foam.png");
-        decoSheet = new Texture("deco.png");
-        towerSheet = new Texture("towers.png");
-
         buttonTexture = new Texture(Gdx.files.internal("swingB.png"));
 
-        grassFrames = extractFrames(grassSheet, 64, 64, 4, 10);
-        waterFrames = extractFrames(waterSheet, 64, 64, 1, 1);
-        foamFrames = extractFrames(foamSheet, 64, 64, 3, 24);
-        decoFrames = extractFrames(decoSheet, 64, 64, 1, 15);
-        towerFrames = extractFrames(towerSheet, 64, 64, 4, 8);
+        grassFrames = atlas.frames(GameAtlas.GRASS, 64, 64, 4, 10);
+        waterFrames = atlas.frames(GameAtlas.WATER, 64, 64, 1, 1);
+        foamFrames = atlas.frames(GameAtlas.FOAM, 64, 64, 3, 24);
+        decoFrames = atlas.frames(GameAtlas.DECO, 64, 64, 1, 15);
+        towerFrames = atlas.frames(GameAtlas.TOWERS, 64, 64, 4, 8);
+
+        mapCache = new TileMapCache(gameData.getJSONArray("levels").getJSONObject(0), this::getTextureForLayer, MAP_CHUNK_TILES);
     }
 
-    private TextureRegion[][] extractFrames(Texture sheet, int frameWidth, int frameHeight, int totalRows, int framesPerRow) {
-        TextureRegion[][] allFrames = new TextureRegion[totalRows][framesPerRow];
-        for (int row = 0; row < totalRows; row++) {
-            for (int col = 0; col < framesPerRow; col++) {
-                TextureRegion frame = new TextureRegion(sheet, col * frameWidth, row * frameHeight, frameWidth, frameHeight);
-                allFrames[row][col] = frame;
+    private static TextureRegion[][] flippedFrames(TextureRegion[][] frames) {
+        TextureRegion[][] flipped = new TextureRegion[frames.length][];
+        for (int row = 0; row < frames.length; row++) {
+            flipped[row] = new TextureRegion[frames[row].length];
+            for (int col = 0; col < frames[row].length; col++) {
+                flipped[row][col] = new TextureRegion(frames[row][col]);
+                flipped[row][col].flip(true, false);
             }
         }
-        return allFrames;
+        return flipped;
     }
 
     @Override
@@ -166,6 +221,11 @@ public class GameScreen implements Screen {
     @Override
     public void render(float delta) {
         animationTimer += delta;
+        latestSnapshot = webSockets.acquireSnapshot();
+        if (latestSnapshot != null) {
+            interpolator.push(latestSnapshot);
+            renderState = interpolator.update(System.nanoTime());
+        }
 
         // Limpiar la pantalla con un fondo negro
         ScreenUtils.clear(0.278f, 0.671f, 0.663f, 1f);
@@ -179,34 +239,23 @@ public class GameScreen implements Screen {
             }
         }        
 
-        if (latestGameState != null) {
-            try {
-                updatePlayerPosition(latestGameState);
-            } catch (JSONException e) {
-                throw new RuntimeException(e);
-            }
+        if (latestSnapshot != null) {
+            updatePlayerPosition();
 
             // === Parte del mundo (con cámara) ===
             camera.position.set(playerX, playerY, 0);
             camera.update();
+            updateViewBounds();
 
             batch.setProjectionMatrix(camera.combined);
             shapeRenderer.setProjectionMatrix(camera.combined);
 
 
-            // === Luego dibujar el mapa ===
-            try {
-                drawMap(0, 0);
-            } catch (JSONException e) {
-                throw new RuntimeException(e);
-            }
+            // === Luego dibujar el mapa (ya en la GPU, ver TileMapCache) ===
+            mapCache.draw(camera.combined, viewBounds);
 
-            try {
-                drawPlayers(latestGameState);
-                drawGold(latestGameState);
-            } catch (JSONException e) {
-                throw new RuntimeException(e);
-            }
+            drawPlayers();
+            drawGold();
         }
 
         // === Parte de la UI (con proyección fija) ===
@@ -224,15 +273,9 @@ public class GameScreen implements Screen {
                 buttonEnabled = false; // desactiva el botón
                 timeSinceLastPress = 0f;
 
-                JSONObject message = new JSONObject();
-                try {
-                    message.put("type", "attack");
-                    message.put("viewState", joystick.getDirectionView());
-                    message.put("id", webSockets.getPlayerId());
-                    webSockets.sendMessage(message.toString());
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                }
+                // El servidor sabe quién ataca por la conexión; sale en el mismo frame que el movimiento
+                webSockets.sendMessage(messageWriter.begin("attack")
+                        .string("viewState", joystick.getDirectionView()));
             }
         }
 
@@ -261,14 +304,8 @@ public class GameScreen implements Screen {
         uiBatch.end();  // Finaliza el SpriteBatch
 
         // Mostrar contador de jugadores
-        if (latestGameState != null && latestGameState.has("players")) {
-            JSONArray players = null;
-            try {
-                players = latestGameState.getJSONArray("players");
-            } catch (JSONException e) {
-                throw new RuntimeException(e);
-            }
-            int numberOfPlayers = players.length();
+        if (latestSnapshot != null) {
+            int numberOfPlayers = latestSnapshot.playerCount;
 
             // Establecer la posición en la esquina superior derecha
             float xPosition = Gdx.graphics.getWidth() - 150;  // Ajustar un margen de 150 píxeles desde el borde
@@ -285,68 +322,69 @@ public class GameScreen implements Screen {
             uiBatch.end();
         }
 
+        // Métricas de red: F3 muestra u oculta el overlay, F4 guarda un informe
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) showNetworkOverlay = !showNetworkOverlay;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F4)) webSockets.dumpMetrics();
+        if (showNetworkOverlay) {
+            drawNetworkOverlay();
+        }
+
+        drawBanner(delta);
+
         // Procesar movimiento del joystick
         Vector2 touchPosition = new Vector2(Gdx.input.getX(), Gdx.input.getY());
         movementOutput = joystick.update(touchPosition);
 
-        // Enviar movimiento al servidor
-        JSONObject message = new JSONObject();
-        try {
-            message.put("type", "updateMovement");
-            message.put("x", (double) movementOutput.x);
-            message.put("y", (double) movementOutput.y);
-            message.put("state", joystick.getDirection(movementOutput));
-            message.put("id", webSockets.getPlayerId());
-
-            webSockets.sendMessage(message.toString());
-        } catch (JSONException e) {
-            e.printStackTrace();
+        // Tras retomar la sesión el servidor no conoce nuestra entrada: reenviarla
+        if (sessionEpoch != webSockets.getSessionEpoch()) {
+            sessionEpoch = webSockets.getSessionEpoch();
+            inputSampler.invalidate();
         }
 
+        // Enviar movimiento al servidor: a ritmo fijo y solo si la entrada ha cambiado
+        if (inputSampler.sample(delta, movementOutput.x, movementOutput.y, joystick.getDirection(movementOutput))) {
+            if (binaryInput) {
+                webSockets.sendInput(inputPacket.encode(inputSampler.getQuantizedX(), inputSampler.getQuantizedY(),
+                        inputSampler.getState(), inputSampler.getSequence()));
+            } else {
+                webSockets.sendMessage(messageWriter.begin("updateMovement")
+                        .number("x", inputSampler.getX())
+                        .number("y", inputSampler.getY())
+                        .string("state", inputSampler.getState())
+                        .number("seq", inputSampler.getSequence()));
+            }
+        }
+        // Lo encolado en este tick sale ahora (ataque y movimiento JSON en un solo frame)
+        webSockets.flush();
+        predictor.step(inputSampler.getTicks(), inputSampler.getSequence(), inputSampler.getX(), inputSampler.getY());
+
         drawAttacks(delta);
     }
 
-    private void drawMap(int x, int y) throws JSONException {
-        batch.begin();
-    
-        JSONArray layers = gameData.getJSONArray("levels").getJSONObject(0).getJSONArray("layers");
-    
-        for (int i = 0; i < layers.length(); i++) {
-            JSONObject layer = layers.getJSONObject(i);
-            String layerName = layer.getString("name");
-            int tileWidth = layer.getInt("tilesWidth");
-            int tileHeight = layer.getInt("tilesHeight");
-    
-            // Obtener el tile map de esta capa
-            JSONArray tileMap = layer.getJSONArray("tileMap");
-    
-            // Set de texturas por capa
-            TextureRegion[][] currentFrameSet = getTextureForLayer(layerName);
-            if (currentFrameSet != null) {
-                int positionX = x;
-                int positionY = y;
-    
-                for (int row = tileMap.length() - 1; row > -1; row--) {
-                    positionX = x;
-                    JSONArray rowTiles = tileMap.getJSONArray(row);
-    
-                    for (int col = 0; col < rowTiles.length(); col++) {
-                        int tile = rowTiles.getInt(col);
-                        if (tile != -1) {
-                            int tileRow = tile / currentFrameSet[0].length;
-                            int tileCol = tile % currentFrameSet[0].length;
-    
-                            batch.draw(currentFrameSet[tileRow][tileCol], positionX, positionY);
-                        }
-                        positionX += tileWidth;
-                    }
-                    positionY += tileHeight;
-                }
-            }
-        }
-        batch.end();
+    private void drawNetworkOverlay() {
+        float scale = font.getData().scaleX;
+        font.getData().setScale(1f);
+        font.setColor(Color.BLACK);
+
+        uiBatch.begin();
+        font.draw(uiBatch, "Render: " + Gdx.graphics.getFramesPerSecond() + " fps", 20, Gdx.graphics.getHeight() - 20);
+        font.draw(uiBatch, webSockets.getMetrics().getOverlayText(), 20, Gdx.graphics.getHeight() - 40);
+        uiBatch.end();
+
+        font.getData().setScale(scale);
     }
-    
+
+    private void updateViewBounds() {
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        viewBounds.set(camera.position.x - width / 2, camera.position.y - height / 2, width, height);
+    }
+
+    private boolean isVisible(float x, float y, float margin) {
+        return x + margin >= viewBounds.x && x - margin <= viewBounds.x + viewBounds.width
+                && y + margin >= viewBounds.y && y - margin <= viewBounds.y + viewBounds.height;
+    }
+
     private TextureRegion[][] getTextureForLayer(String layerName) {
         switch (layerName) {
             case "water0": return waterFrames;
@@ -358,67 +396,113 @@ public class GameScreen implements Screen {
         }
     }
 
-    private void updatePlayerPosition(JSONObject gameState) throws JSONException {
-        if (!gameState.has("players")) return;
-
-        JSONArray players = gameState.getJSONArray("players");
-
-        for (int i = 0; i < players.length(); i++) {
-            JSONObject player = players.getJSONObject(i);
-            String playerId = player.getString("id"); // Usar el id del jugador para identificar a todos
+    private void updatePlayerPosition() {
+        GameState state = latestSnapshot;
+        localHandle = state.findHandle(webSockets.getPlayerId());
 
-            JSONObject pos = player.getJSONObject("position");
-            float newX = (float) pos.getDouble("x");
-            float newY = (float) pos.getDouble("y");
-
-            // Quitar la interpolación y asignar directamente la nueva posición
-            if (playerId.equals(webSockets.getPlayerId())) {
-                // Dentro de tu clase de render/update en libGDX
-                float delta = Gdx.graphics.getDeltaTime();
+        if (localHandle != -1) {
+            // Dentro de tu clase de render/update en libGDX
+            float delta = Gdx.graphics.getDeltaTime();
 
+            predictor.reconcile(state, localHandle);
+            if (predictor.isActive()) {
+                // Posición predicha con nuestra entrada, sin esperar al servidor
+                predictor.update(delta);
+                playerX = predictor.getX();
+                playerY = predictor.getY();
+            } else {
                 // Si quieres interpolar suavemente la posición recibida desde el servidor:
                 float lerpFactor = 10f * delta;
-                playerX += (newX - playerX) * lerpFactor;
-                playerY += (newY - playerY) * lerpFactor;
+                playerX += (state.getX(localHandle) - playerX) * lerpFactor;
+                playerY += (state.getY(localHandle) - playerY) * lerpFactor;
             }
+        }
 
-            // Actualizar dirección solo si el estado ha cambiado
-            String state = player.getString("state").toUpperCase();
+        playerDirections.update(state);
+    }
 
-            // Si el estado no es "IDLE" y ha cambiado, se actualiza la dirección
-            if (!state.equals("IDLE") && !state.equals(playerDirections.get(playerId))) {
-                playerDirections.put(playerId, state); // Guardamos la dirección de todos los jugadores
-                System.out.println("Updated direction for player " + playerId + ": " + state);
-            }
-        }
+
+    // Se llama desde el hilo del WebSocket; el ataque se añade en el hilo de render.
+    // producedAt es el System.nanoTime() en el que ocurrió en el servidor (ver WebSockets.localTimeOf).
+    public void handleAttack(String attackerId, String viewState, long producedAt) {
+        System.out.println("Ataque de " + attackerId + " hacia " + viewState);
+        byte direction = GameState.stateCode(viewState);
+
+        Gdx.app.postRunnable(() -> addAttack(attackerId, direction, producedAt));
     }
 
+    // Eventos de la partida, también desde el hilo del WebSocket: se muestran como aviso en pantalla
+    public void onCountdown(int seconds) {
+        Gdx.app.postRunnable(() -> showBanner("La partida empieza en " + seconds + "s", 1.5f));
+    }
 
-    public void paintEntities(JSONObject data) throws JSONException {
-        if (!data.has("gameState")) return;
-        latestGameState = data.getJSONObject("gameState");
+    public void onGameStarted() {
+        Gdx.app.postRunnable(() -> showBanner("¡El juego ha comenzado!", 2f));
     }
 
-    public void handleAttack(JSONObject jsonAttackMessage) throws JSONException {
-        System.out.println(jsonAttackMessage);
-        String attackerId = jsonAttackMessage.getString("attacker");
-        String direction = jsonAttackMessage.getString("viewState");
+    public void onJoinedLobby(String team) {
+        Gdx.app.postRunnable(() -> showBanner("Equipo " + team, 3f));
+    }
 
-        // Buscar al jugador en la lista y obtener su posición
-        if (latestGameState != null && latestGameState.has("players")) {
-            JSONArray players = latestGameState.getJSONArray("players");
+    public void onJoinedAsSpectator() {
+        Gdx.app.postRunnable(() -> showBanner("Modo espectador", 3f));
+    }
 
-            for (int i = 0; i < players.length(); i++) {
-                JSONObject player = players.getJSONObject(i);
-                if (player.getString("id").equals(attackerId)) {
-                    JSONObject pos = player.getJSONObject("position");
-                    float x = (float) pos.getDouble("x");
-                    float y = (float) pos.getDouble("y");
-                    String team = (String) player.get("team");
+    public void onPlayerHit(String attackerId, String victimId) {
+        String localId = webSockets.getPlayerId();
+        if (localId == null) return;
+        if (localId.equals(victimId)) {
+            Gdx.app.postRunnable(() -> showBanner("¡Te han golpeado!", 1.5f));
+        } else if (localId.equals(attackerId)) {
+            Gdx.app.postRunnable(() -> showBanner("¡Golpe!", 1f));
+        }
+    }
 
-                    activeAttacks.add(new AttackEffect(x, y, direction, attackerId, team));
-                    break;
+    public void onGameOver(String team, String message) {
+        String text = message != null ? message : "¡El juego ha terminado! El ganador es el equipo " + team;
+        Gdx.app.postRunnable(() -> showBanner(text, Float.MAX_VALUE));
+    }
+
+    private void showBanner(String text, float seconds) {
+        bannerText = text;
+        bannerTimer = seconds;
+    }
+
+    private void drawBanner(float delta) {
+        if (bannerText == null) return;
+        bannerTimer -= delta;
+        if (bannerTimer <= 0) {
+            bannerText = null;
+            return;
+        }
+
+        titleFont.getData().setScale(2f);
+        titleFont.setColor(Color.WHITE);
+        layout.setText(titleFont, bannerText);
+        uiBatch.begin();
+        titleFont.draw(uiBatch, bannerText, (Gdx.graphics.getWidth() - layout.width) / 2, Gdx.graphics.getHeight() - 100);
+        uiBatch.end();
+    }
+
+    private void addAttack(String attackerId, byte direction, long producedAt) {
+        // Buscar al jugador en el estado y obtener su posición
+        // En la posición en la que se está dibujando al atacante
+        if (renderState != null) {
+            int handle = renderState.findHandle(attackerId);
+            if (handle != -1) {
+                boolean predicted = handle == localHandle && predictor.isActive();
+                AttackEffect attack = new AttackEffect(predicted ? playerX : renderState.getX(handle),
+                        predicted ? playerY : renderState.getY(handle), direction,
+                        attackerId, handle, renderState.teams[handle]);
+
+                // Los demás jugadores se dibujan con el retardo de la interpolación: su ataque tiene que
+                // empezar cuando la vista llegue a la hora del servidor en que ocurrió, ni antes ni después
+                if (!predicted) {
+                    double startsIn = (producedAt - System.nanoTime()) / 1e9 + interpolator.getDelay();
+                    attack.timer = (float) -Math.max(-ATTACK_DURATION, Math.min(MAX_ATTACK_WAIT, startsIn));
                 }
+                activeAttacks.add(attack);
+                activeAttackCount[handle]++;
             }
         }
     }
@@ -430,53 +514,39 @@ public class GameScreen implements Screen {
             AttackEffect atk = activeAttacks.get(i);
             
             atk.timer += delta;
+            if (atk.timer < 0) continue; // Todavía no ha empezado en la vista interpolada
             
             int frameIndex = ((int)(atk.timer / frameDuration)) % 6;
         
             // Seleccionamos los frames según el equipo del jugador
-            TextureRegion[][] attackFrames = null;
-            switch (atk.playerTeam.toLowerCase()) {  // Usamos .toLowerCase() para evitar problemas de mayúsculas/minúsculas
-                case "blue":
-                    attackFrames = blueFrames;
-                    break;
-                case "red":
-                    attackFrames = redFrames;
-                    break;
-                case "purple":
-                    attackFrames = purpleFrames;
-                    break;
-                case "yellow":
-                    attackFrames = yellowFrames;
-                    break;
-                default:
-                    System.out.println("Equipo no válido: " + atk.playerTeam); // Depuración del equipo
-                    continue; // Si el equipo no es válido, saltamos a la siguiente animación
+            if (atk.playerTeam < 0 || atk.playerTeam >= teamFrames.length) {
+                System.out.println("Equipo no válido: " + atk.playerTeam); // Depuración del equipo
+                removeAttack(i);
+                continue; // Si el equipo no es válido, saltamos a la siguiente animación
             }
+            TextureRegion[][] attackFrames = teamFrames[atk.playerTeam];
         
             // Determinamos la fila y la animación según la dirección
-            int row = -1;
-            switch (atk.direction.toUpperCase()) {
-                case "RIGHT":
+            int row;
+            switch (atk.direction) {
+                case GameState.STATE_RIGHT:
                     row = 2; // Fila para RIGHT
                     break;
-                case "LEFT":
+                case GameState.STATE_LEFT:
                     row = 3; // Fila para LEFT
                     break;
-                case "TOP":
+                case GameState.STATE_TOP:
                     row = 7; // Fila para UP
                     break;
-                case "BOTTOM":
+                case GameState.STATE_BOTTOM:
                     row = 5; // Fila para DOWN
                     break;
                 default:
                     System.out.println("Dirección no válida: " + atk.direction); // Depuración de la dirección
+                    removeAttack(i);
                     continue; // Si no es una dirección válida, saltamos a la siguiente animación.
             }
         
-            if (row == -1) {
-                continue; // Si no es una fila válida, saltamos a la siguiente animación.
-            }
-        
             // Obtenemos el frame de la fila correspondiente
             TextureRegion frame = attackFrames[row][frameIndex];
         
@@ -488,124 +558,130 @@ public class GameScreen implements Screen {
             float drawX = atk.x - width / 2;
             float drawY = atk.y - height / 2;
             
-            // Aquí es donde se aplica la inversión solo cuando sea necesario
-            if (atk.direction.equals("LEFT")) {
-                batch.draw(frame, drawX + width, drawY, -width, height);  // Dibuja invertido
-            } else {
-                batch.draw(frame, drawX, drawY, width, height);  // Dibuja normalmente
+            // Fuera de cámara no se dibuja, pero el temporizador sigue avanzando
+            if (isVisible(atk.x, atk.y, ATTACK_CULL_MARGIN)) {
+                // Aquí es donde se aplica la inversión solo cuando sea necesario
+                if (atk.direction == GameState.STATE_LEFT) {
+                    batch.draw(frame, drawX + width, drawY, -width, height);  // Dibuja invertido
+                } else {
+                    batch.draw(frame, drawX, drawY, width, height);  // Dibuja normalmente
+                }
             }
         
             // Eliminar el ataque después de 0.5 segundos
-            if (atk.timer >= 0.5f) { // Fin del ataque (0.5 segundos)
-                activeAttacks.remove(i);
+            if (atk.timer >= ATTACK_DURATION) { // Fin del ataque (0.5 segundos)
+                removeAttack(i);
                 break;  // Asegura que no se sigan procesando ataques una vez removidos
             }
         }
         
         batch.end();
     }
+
+    private void removeAttack(int index) {
+        AttackEffect atk = activeAttacks.remove(index);
+        if (activeAttackCount[atk.attackerHandle] > 0) {
+            activeAttackCount[atk.attackerHandle]--;
+        }
+    }
     
-    private void drawPlayers(JSONObject gameState) throws JSONException {
-        if (!gameState.has("players")) return;
-    
-        JSONArray players = gameState.getJSONArray("players");
+    private void drawPlayers() {
+        GameState state = renderState;
         batch.begin();
-    
-        for (int i = 0; i < players.length(); i++) {
-            JSONObject player = players.getJSONObject(i);
-            JSONObject pos = player.getJSONObject("position");
-            float x = (float) pos.getDouble("x");
-            float y = (float) pos.getDouble("y");
-            String team = player.getString("team").toLowerCase();
-            String state = player.getString("state").toUpperCase();
-            String playerId = player.getString("id");
-            String nickname = player.optString("nickname", team);
-            boolean hasGold = player.getBoolean("hasGold");
-    
-            boolean isAttacking = false;
-            for (AttackEffect atk : activeAttacks) {
-                if (atk.attackerId.equals(playerId)) {
-                    isAttacking = true;
-                    break;
-                }
-            }
-            if (isAttacking) continue;
-    
-            String lastDirection = playerDirections.getOrDefault(playerId, "RIGHT");
-    
-            TextureRegion[][] frames = null;
-            switch (team) {
-                case "blue":   frames = blueFrames;   break;
-                case "red":    frames = redFrames;    break;
-                case "purple": frames = purpleFrames; break;
-                case "yellow": frames = yellowFrames; break;
+
+        for (int i = 0; i < state.playerCount; i++) {
+            int handle = state.handles[i];
+            boolean predicted = handle == localHandle && predictor.isActive();
+            float x = predicted ? playerX : state.getX(handle);
+            float y = predicted ? playerY : state.getY(handle);
+            if (isVisible(x, y, PLAYER_CULL_MARGIN)) {
+                drawPlayer(state, handle, x, y);
             }
-    
-            if (frames != null) {
-                int row = (state.equals("RIGHT") || state.equals("LEFT")) ? 1 : 0;
-                int frameIndex = ((int)(animationTimer / frameDuration)) % 6;
-                TextureRegion frame = frames[row][frameIndex];
-    
-                if (state.equals("LEFT") || (state.equals("IDLE") && lastDirection.equals("LEFT"))) {
-                    frame = new TextureRegion(frame);
-                    frame.flip(true, false);
-                }
-    
-                float scale = 0.85f;
-                batch.draw(frame, x - (96 * scale), y - (96 * scale),
-                        frame.getRegionWidth() * scale, frame.getRegionHeight() * scale);
-    
-                if (nickname != null && !nickname.isEmpty()) {
-                    layout.setText(font, nickname);
-                    float textX = x - layout.width / 2;
-                    float textY = y + 50;
-    
-                    // Borde negro
-                    font.setColor(Color.BLACK);
-                    for (int dx = -1; dx <= 1; dx++) {
-                        for (int dy = -1; dy <= 1; dy++) {
-                            if (dx != 0 || dy != 0) {
-                                font.draw(batch, nickname, textX + dx, textY + dy);
-                            }
-                        }
-                    }
-    
-                    // Texto principal
-                    font.setColor(hasGold ? Color.GOLD : Color.WHITE);
-                    font.draw(batch, nickname, textX, textY);
-                }
+        }
+
+        // Los nombres van después de todos los sprites para no alternar entre la textura del atlas y la de la fuente
+        for (int i = 0; i < state.playerCount; i++) {
+            int handle = state.handles[i];
+            boolean predicted = handle == localHandle && predictor.isActive();
+            float x = predicted ? playerX : state.getX(handle);
+            float y = predicted ? playerY : state.getY(handle);
+            if (isVisible(x, y, PLAYER_CULL_MARGIN)) {
+                drawNickname(state, handle, x, y);
             }
         }
-    
+
         batch.end();
     }
-    
 
-    private void drawGold(JSONObject gameState) throws JSONException {
-        if (!gameState.has("gold")) return;
+    private void drawPlayer(GameState state, int handle, float x, float y) {
+        // Mientras ataca se dibuja la animación de ataque en su lugar
+        if (activeAttackCount[handle] > 0) return;
 
-        JSONArray golds = gameState.getJSONArray("gold");
+        byte team = state.teams[handle];
+        if (team < 0 || team >= teamFrames.length) return;
 
-        batch.begin();
-        for (int i = 0; i < golds.length(); i++) {
-            JSONObject gold = golds.getJSONObject(i);
-            JSONObject pos = gold.getJSONObject("position");
+        byte playerState = state.states[handle];
+        boolean facingLeft = playerState == GameState.STATE_LEFT
+                || (playerState == GameState.STATE_IDLE && playerDirections.get(handle) == GameState.STATE_LEFT);
+        TextureRegion[][] frames = facingLeft ? teamFramesLeft[team] : teamFrames[team];
+
+        int row = (playerState == GameState.STATE_RIGHT || playerState == GameState.STATE_LEFT) ? 1 : 0;
+        int frameIndex = ((int)(animationTimer / frameDuration)) % 6;
+        TextureRegion frame = frames[row][frameIndex];
 
-            float x = (float) pos.getDouble("x");
-            float y = (float) pos.getDouble("y");
+        float scale = 0.85f;
+        batch.draw(frame, x - (96 * scale), y - (96 * scale),
+                frame.getRegionWidth() * scale, frame.getRegionHeight() * scale);
+    }
 
-            int frameIndex = ((int)(animationTimer / frameDuration)) % 7;
-            TextureRegion[][] frames = goldFrames;
+    private void drawNickname(GameState state, int handle, float x, float y) {
+        // Mientras ataca tampoco se dibuja el nombre, igual que el sprite
+        if (activeAttackCount[handle] > 0) return;
 
-            TextureRegion frame = frames[0][frameIndex];
+        byte team = state.teams[handle];
+        if (team < 0 || team >= teamFrames.length) return;
 
-            float scale = 1f;  // Ajusta la escala según lo necesites
-            batch.draw(frame, x - (96 * scale), y - (96 * scale), frame.getRegionWidth() * scale, frame.getRegionHeight() * scale);
+        String nickname = state.nicknames[handle] != null ? state.nicknames[handle] : GameState.teamName(team);
+        if (nickname == null || nickname.isEmpty()) return;
 
+        GlyphLayout nameLayout = nicknameLayout(handle, nickname, state.hasGold[handle]);
+        nameFont.draw(batch, nameLayout, x - nameLayout.width / 2, y + 50);
+    }
+
+    private GlyphLayout nicknameLayout(int handle, String nickname, boolean hasGold) {
+        GlyphLayout nameLayout = nameLayouts[handle];
+        if (nameLayout == null) {
+            nameLayout = new GlyphLayout();
+            nameLayouts[handle] = nameLayout;
+        } else if (hasGold == nameLayoutGold[handle] && nickname.equals(nameLayoutTexts[handle])) {
+            return nameLayout;
+        }
+        nameLayout.setText(nameFont, nickname, hasGold ? Color.GOLD : Color.WHITE, 0, Align.left, false);
+        nameLayoutTexts[handle] = nickname;
+        nameLayoutGold[handle] = hasGold;
+        return nameLayout;
+    }
+
+    private void drawGold() {
+        batch.begin();
+        for (int i = 0; i < renderState.goldCount; i++) {
+            float x = renderState.getGoldX(i);
+            float y = renderState.getGoldY(i);
+            if (isVisible(x, y, GOLD_CULL_MARGIN)) drawGoldAt(x, y);
         }
         batch.end();
     }
 
+    private void drawGoldAt(float x, float y) {
+        int frameIndex = ((int)(animationTimer / frameDuration)) % 7;
+        TextureRegion[][] frames = goldFrames;
+
+        TextureRegion frame = frames[0][frameIndex];
+
+        float scale = 1f;  // Ajusta la escala según lo necesites
+        batch.draw(frame, x - (96 * scale), y - (96 * scale), frame.getRegionWidth() * scale, frame.getRegionHeight() * scale);
+    }
+
     @Override
     public void resize(int width, int height) {
         buttonX = width - buttonRadius - 100; // 25 px de margen desde la derecha
@@ -624,15 +700,9 @@ public class GameScreen implements Screen {
         uiShapeRenderer.dispose();
         font.dispose();
         titleFont.dispose();
-        warriorBlueSheet.dispose();
-        warriorRedSheet.dispose();
-        warriorPurpleSheet.dispose();
-        warriorYellowSheet.dispose();
-        grassSheet.dispose();
-        waterSheet.dispose();
-        foamSheet.dispose();
-        decoSheet.dispose();
-        goldSheet.dispose();
+        nameFont.dispose();
+        atlas.dispose();
         buttonTexture.dispose();
+        mapCache.dispose();
     }
 }
@@ -1,7 +1,5 @@
 package com.project.screens;
 
-import java.io.IOException;
-
 import org.json.JSONObject;
 
 import com.badlogic.gdx.*;
@@ -14,15 +12,13 @@ import com.badlogic.gdx.scenes.scene2d.utils.*;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
+import com.project.WebSockets;
+import com.project.clases.ApiClient;
 import com.project.clases.LoginCallback;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import com.project.clases.MenuAssets;
+import com.project.clases.ProfileCache;
+import com.project.clases.SessionStore;
+import com.project.clases.StageTimings;
 
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 
@@ -48,6 +44,68 @@ public class LoginScreen implements Screen {
 
     private boolean isRegisterMode = false;
 
+    // Login en curso (null si no hay ninguno). Lo usan solo el hilo de render y los callbacks de ApiClient.
+    private StageTimings loginTimings;
+    private LoginCallback loginCallback;
+    private boolean loginAccepted;
+    private JSONObject profile;
+    private String profileEtag;
+    private String profileError; // Fallo del perfil a la espera de saber si el login es correcto
+    // Último login que ha entrado al menú, para pasarle el perfil si al revalidarlo ha cambiado
+    private StageTimings menuTimings;
+    private MenuScreen menu;
+
+    // Pantalla de arranque. Con una sesión guardada se entra directamente al menú con el perfil guardado,
+    // sin POST de login ni GET del perfil, y el token se comprueba en segundo plano con /api/session
+    // (con el ETag del perfil guardado: si no ha cambiado el servidor contesta 304 sin cuerpo).
+    // Si ya no vale se vuelve al login; si no hay red se sigue con lo guardado.
+    public static Screen firstScreen(Game game) {
+        String sessionToken = SessionStore.getToken();
+        JSONObject savedProfile = SessionStore.getProfile();
+        if (sessionToken == null || savedProfile == null) return new LoginScreen(game);
+
+        System.out.println("Sesión guardada de " + savedProfile.optString("nickname") + ", entrando al menú");
+        MenuScreen menu = new MenuScreen(game,
+            savedProfile.optString("_id", "Desconocido"),
+            savedProfile.optString("nickname", "Desconocido"),
+            savedProfile.optString("email", "Desconocido"),
+            savedProfile.optString("phone", "Desconocido"),
+            savedProfile.optString("validated", "Desconocido"));
+
+        String savedEtag = SessionStore.getProfileEtag();
+        ApiClient.getJsonIfChanged("/api/session", sessionToken, savedEtag, new ApiClient.RevalidateCallback() {
+            @Override
+            public void onNotModified() {
+                ProfileCache.put(savedProfile, savedEtag);
+            }
+
+            @Override
+            public void onChanged(JSONObject current, String etag) {
+                rememberProfile(current, etag);
+                if (!current.similar(savedProfile)) {
+                    menu.updateProfile(
+                        current.optString("nickname", "Desconocido"),
+                        current.optString("email", "Desconocido"),
+                        current.optString("phone", "Desconocido"),
+                        current.optString("validated", "Desconocido"));
+                }
+            }
+
+            @Override
+            public void onError(int status, String error) {
+                if (status == 401) {
+                    System.out.println("⚠️ Sesión caducada o revocada, volviendo al login");
+                    SessionStore.clear();
+                    ProfileCache.clear();
+                    menu.signOut();
+                } else {
+                    System.out.println("No se pudo comprobar la sesión, se sigue con la guardada: " + error);
+                }
+            }
+        });
+        return menu;
+    }
+
     public LoginScreen(Game game) {
         this.game = game;
         this.batch = new SpriteBatch();
@@ -68,6 +126,12 @@ public class LoginScreen implements Screen {
         backgroundTexture = new Texture("fondo3.gif");
 
         createUI();
+
+        // Mientras el usuario escribe se van abriendo el WebSocket y la conexión HTTP de la API
+        // y se cargan las texturas del menú
+        WebSockets.preconnect();
+        ApiClient.warmUp();
+        MenuAssets.preload();
     }
 
     private void createUI() {
@@ -217,10 +281,37 @@ public class LoginScreen implements Screen {
         stage.addActor(container);
     }
 
+    // El login ya no va paso a paso (POST, luego perfil, luego texturas del menú, luego WebSocket): todo lo que
+    // no depende de la respuesta del POST se lanza a la vez. El perfil es público y no necesita la sesión,
+    // pero manda la respuesta del login: un error del perfil solo se muestra si el POST ha ido bien,
+    // las texturas se cargan en render() desde que se abrió esta pantalla y el WebSocket ya está abierto
+    // desde el constructor. Se entra al menú cuando terminan las tres etapas del camino crítico.
     public void loginUser(String nickname, String password, LoginCallback callback) {
         System.out.println("🛠 Iniciando login de usuario...");
 
-        String urlString = "https://bandera3.ieti.site/api/login";
+        StageTimings timings = new StageTimings();
+        loginTimings = timings;
+        loginCallback = callback;
+        loginAccepted = false;
+        profile = null;
+        profileEtag = null;
+        profileError = null;
+
+        timings.begin("login");
+        timings.begin("perfil");
+        timings.begin("recursos");
+        if (MenuAssets.update()) timings.end("recursos", "precargados");
+        WebSockets.preconnect();
+
+        // Perfil de un login anterior de esta cuenta en esta ejecución: se entra con él sin esperar al GET,
+        // pero solo si el POST acepta la contraseña (enterMenuWhenReady espera a loginAccepted)
+        JSONObject cachedProfile = ProfileCache.get(nickname);
+        if (cachedProfile != null) {
+            profile = cachedProfile;
+            profileEtag = ProfileCache.etag(nickname);
+            timings.end("perfil", "en memoria");
+        }
+        getUserInfo(nickname, timings, cachedProfile != null ? profileEtag : null);
 
         // Crear el JSON para enviar
         JSONObject jsonPayload = new JSONObject();
@@ -230,138 +321,146 @@ public class LoginScreen implements Screen {
         System.out.println("📦 Payload JSON a enviar:");
         System.out.println(jsonPayload.toString());
 
-        // Crear el cliente OkHttp
-        OkHttpClient client = new OkHttpClient();
+        ApiClient.postJson("/api/login", jsonPayload, new ApiClient.ApiCallback<JSONObject>() {
+            @Override
+            public void onSuccess(JSONObject jsonResponse) {
+                if (timings != loginTimings) return;
+                timings.end("login");
+                System.out.println("📨 Respuesta del servidor:");
+                System.out.println(jsonResponse);
 
-        // Crear el cuerpo de la solicitud
-        RequestBody body = RequestBody.create(
-            jsonPayload.toString(), MediaType.get("application/json; charset=utf-8")
-        );
+                // Si el login fue exitoso
+                String message = jsonResponse.optString("message", "Login exitoso");
+                showToast(message);
+                System.out.println("🎯 " + message);
 
-        // Crear la solicitud POST
-        Request request = new Request.Builder()
-            .url(urlString)
-            .post(body)
-            .build();
+                // Con el token guardado el próximo arranque entra directamente al menú
+                String sessionToken = jsonResponse.optString("sessionToken", null);
+                if (sessionToken != null) SessionStore.saveToken(sessionToken);
 
-        // Enviar la solicitud
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                System.out.println("❌ Error durante el proceso de login:");
-                e.printStackTrace();
-
-                Gdx.app.postRunnable(() -> {
-                    showToast("Error de conexión: " + e.getMessage());
-                    callback.onLoginComplete(false);
-                });
+                loginAccepted = true;
+                if (profileError != null) {
+                    failLogin(profileError);
+                    return;
+                }
+                enterMenuWhenReady();
             }
 
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                String responseBody = response.body().string();  // Leer la respuesta como String
-                System.out.println("📨 Respuesta del servidor:");
-                System.out.println(responseBody);
-
-                try {
-                    JSONObject jsonResponse = new JSONObject(responseBody);
-
-                    if (response.isSuccessful()) {
-                        // Si el login fue exitoso
-                        String message = jsonResponse.optString("message", "Login exitoso");
-                        Gdx.app.postRunnable(() -> showToast(message));  // Mostrar toast bonito
-                        System.out.println("🎯 " + message);
-
-                        // Llamar a la función que obtiene los detalles del usuario
-                        getUserInfo(nickname, callback);
-
-                    } else {
-                        // Si hubo error
-                        String error = jsonResponse.optString("error", "Error desconocido");
-                        Gdx.app.postRunnable(() -> showToast(error));  // Mostrar error en toast
-                        System.out.println("⚠️ Error recibido: " + error);
-                        callback.onLoginComplete(false);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    Gdx.app.postRunnable(() -> showToast("Error procesando respuesta del servidor"));
-                    callback.onLoginComplete(false);
+            public void onError(int status, String error) {
+                if (timings != loginTimings) return;
+                loginTimings = null;
+                profile = null; // El perfil ya descargado es de una cuenta en la que no se ha entrado
+                if (status == 0) {
+                    showToast("Error de conexión: " + error);
+                } else {
+                    // Si hubo error
+                    String message = error != null ? error : "Error desconocido";
+                    showToast(message);
+                    System.out.println("⚠️ Error recibido: " + message);
                 }
+                callback.onLoginComplete(false);
             }
         });
     }
 
-    private void getUserInfo(String nickname, LoginCallback callback) {
-        String urlString = "https://bandera3.ieti.site/api/usuario/" + nickname;
-
-        OkHttpClient client = new OkHttpClient();
-        Request request = new Request.Builder()
-            .url(urlString)
-            .build();
+    // El perfil se pide sin caché de disco: con una contraseña incorrecta no debe quedarse guardado el perfil
+    // (email, teléfono) de esa cuenta. Si ya se tenía de un login anterior (etag != null) solo se revalida:
+    // 304 si no ha cambiado. Si falla antes de que conteste el login solo se apunta el error.
+    private void getUserInfo(String nickname, StageTimings timings, String etag) {
+        ApiClient.getJsonIfChanged("/api/usuario/" + nickname, null, etag, new ApiClient.RevalidateCallback() {
+            @Override
+            public void onChanged(JSONObject jsonResponse, String newEtag) {
+                System.out.println("📨 Respuesta del servidor (Usuario):");
+                System.out.println(jsonResponse);
+
+                if (timings == loginTimings) {
+                    profile = jsonResponse;
+                    profileEtag = newEtag;
+                    if (!timings.isDone("perfil")) timings.end("perfil");
+                    enterMenuWhenReady();
+                } else if (timings == menuTimings) {
+                    // Se entró con la copia en memoria y ha cambiado: se actualiza el menú ya abierto
+                    rememberProfile(jsonResponse, newEtag);
+                    menu.updateProfile(
+                        jsonResponse.optString("nickname", "Desconocido"),
+                        jsonResponse.optString("email", "Desconocido"),
+                        jsonResponse.optString("phone", "Desconocido"),
+                        jsonResponse.optString("validated", "Desconocido"));
+                }
+            }
 
-        // Enviar la solicitud
-        client.newCall(request).enqueue(new Callback() {
             @Override
-            public void onFailure(Call call, IOException e) {
-                System.out.println("❌ Error al obtener información del usuario:");
-                e.printStackTrace();
-
-                Gdx.app.postRunnable(() -> {
-                    showToast("Error al obtener la información del usuario");
-                    callback.onLoginComplete(false);
-                });
+            public void onNotModified() {
+                System.out.println("Perfil sin cambios (304)");
             }
 
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                String responseBody = response.body().string();  // Leer la respuesta como String
-                System.out.println("📨 Respuesta del servidor (Usuario):");
-                System.out.println(responseBody);
-
-                try {
-                    JSONObject jsonResponse = new JSONObject(responseBody);
-
-                    if (response.isSuccessful()) {
-                        // Si la respuesta fue exitosa, extraemos la información del usuario
-                        String id = jsonResponse.optString("_id", "Desconocido");
-                        String username = jsonResponse.optString("nickname", "Desconocido");
-                        String email = jsonResponse.optString("email", "Desconocido");
-                        String phone = jsonResponse.optString("phone", "Desconocido");
-                        String validated = jsonResponse.optString("validated", "Desconocido");
-
-                        // Mostrar la información del usuario en la consola
-                        System.out.println("Información del usuario:");
-                        System.out.println("Nickname: " + username);
-                        System.out.println("Email: " + email);
-                        System.out.println("Teléfono: " + phone);
-                        System.out.println("Estado: " + validated);
-
-                        // Mostrar la información del usuario en la pantalla (por ejemplo)
-                        Gdx.app.postRunnable(() -> {
-                            System.out.println("SE COSTRUYEEE 2");
-                            game.setScreen(new MenuScreen(game, id, username, email, phone, validated));
-                        });
-
-                        callback.onLoginComplete(true);
-                    } else {
-                        // Si hubo un error en la respuesta
-                        String error = jsonResponse.optString("error", "Error desconocido");
-                        Gdx.app.postRunnable(() -> {
-                            showToast("Error al obtener la información del usuario: " + error);
-                            callback.onLoginComplete(false);
-                        });
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    Gdx.app.postRunnable(() -> {
-                        showToast("Error procesando la información del usuario");
-                        callback.onLoginComplete(false);
-                    });
+            public void onError(int status, String error) {
+                if (timings != loginTimings) return;
+                if (etag != null) {
+                    System.out.println("No se pudo revalidar el perfil, se sigue con la copia: " + error);
+                    return;
+                }
+                String message = status == 0
+                    ? "Error al obtener la información del usuario"
+                    : "Error al obtener la información del usuario: " + (error != null ? error : "Error desconocido");
+                if (loginAccepted) {
+                    failLogin(message);
+                } else {
+                    profileError = message;
                 }
             }
         });
     }
 
+    // Solo con la sesión ya aceptada: en memoria para los próximos logins de esta ejecución y en
+    // SessionStore para el próximo arranque
+    private static void rememberProfile(JSONObject profile, String etag) {
+        ProfileCache.put(profile, etag);
+        SessionStore.saveProfile(profile, etag);
+    }
+
+    private void failLogin(String message) {
+        loginTimings = null;
+        profile = null;
+        showToast(message);
+        loginCallback.onLoginComplete(false);
+    }
+
+    // Se llama al terminar cada etapa (callbacks y render()); solo entra cuando están las tres
+    private void enterMenuWhenReady() {
+        StageTimings timings = loginTimings;
+        if (timings == null || !loginAccepted || !timings.allDone("login", "perfil", "recursos")) return;
+        loginTimings = null;
+
+        System.out.println("⏱ Login: " + timings.report()
+            + (WebSockets.isPreconnectOpen() ? ", WebSocket ya abierto" : ", WebSocket aún conectando"));
+
+        // Extraemos la información del usuario
+        String id = profile.optString("_id", "Desconocido");
+        String username = profile.optString("nickname", "Desconocido");
+        String email = profile.optString("email", "Desconocido");
+        String phone = profile.optString("phone", "Desconocido");
+        String validated = profile.optString("validated", "Desconocido");
+
+        // Mostrar la información del usuario en la consola
+        System.out.println("Información del usuario:");
+        System.out.println("Nickname: " + username);
+        System.out.println("Email: " + email);
+        System.out.println("Teléfono: " + phone);
+        System.out.println("Estado: " + validated);
+
+        rememberProfile(profile, profileEtag);
+
+        System.out.println("SE COSTRUYEEE 2");
+        menu = new MenuScreen(game, id, username, email, phone, validated);
+        menuTimings = timings;
+        game.setScreen(menu);
+
+        loginCallback.onLoginComplete(true);
+    }
+
     private void showToast(String message) {
         // Crear un fondo de color (negro semi-transparente)
         Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
@@ -409,6 +508,11 @@ public class LoginScreen implements Screen {
     public void render(float delta) {
         ScreenUtils.clear(0, 0, 0, 1);
 
+        if (MenuAssets.update() && loginTimings != null && !loginTimings.isDone("recursos")) {
+            loginTimings.end("recursos");
+            enterMenuWhenReady();
+        }
+
         batch.begin();
         batch.draw(backgroundTexture, 0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
         batch.end();
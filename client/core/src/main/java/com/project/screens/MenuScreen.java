@@ -18,6 +18,7 @@ import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.Align;
 import com.project.WebSockets;
+import com.project.clases.MenuAssets;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.Screen;
 
@@ -31,7 +32,8 @@ public class MenuScreen implements Screen {
     private Label titleLabel, playersLabel;
     private TextButton startButton;
     private Texture backgroundTexture; // Fondo de la pantalla
-    private int playersInMatch = 0;
+    private volatile int playersInMatch = 0; // Lo escribe el hilo del WebSocket
+    private int shownPlayers = 0;            // Último valor pintado en playersLabel (hilo de render)
 
     private WebSockets webSockets;
 
@@ -40,8 +42,8 @@ public class MenuScreen implements Screen {
         batch = new SpriteBatch();
         font = new BitmapFont(); // Usando una fuente básica
 
-        // Cargar la imagen de fondo
-        backgroundTexture = new Texture("fondo.png");
+        // Cargar la imagen de fondo (normalmente ya precargada desde LoginScreen)
+        backgroundTexture = MenuAssets.get(MenuAssets.BACKGROUND);
 
         // Configurar el stage
         stage = new Stage();
@@ -62,7 +64,7 @@ public class MenuScreen implements Screen {
         playersLabel.setColor(Color.BLACK);
 
         // Cargar la textura del botón desde tu archivo de imagen
-        Texture buttonTexture = new Texture(Gdx.files.internal("button.png"));
+        Texture buttonTexture = MenuAssets.get(MenuAssets.BUTTON);
         Drawable buttonBackground = new TextureRegionDrawable(new TextureRegion(buttonTexture));
 
         // Crear un estilo de botón personalizado
@@ -103,7 +105,7 @@ public class MenuScreen implements Screen {
         table.setFillParent(false); // La tabla ocupa toda la pantalla
 
         // Creamos un fondo solo para los elementos de la tabla
-        table.setBackground(new Image(new TextureRegion(new Texture("marco.png"))).getDrawable());
+        table.setBackground(new Image(new TextureRegion(MenuAssets.get(MenuAssets.FRAME))).getDrawable());
 
         table.setWidth(750);
         table.setHeight(750);
@@ -118,14 +120,27 @@ public class MenuScreen implements Screen {
         // Añadir la tabla al stage
         stage.addActor(table);
 
-        webSockets = new WebSockets(this, id, username, email, phone, validated);
+        // Normalmente la conexión ya está abierta desde LoginScreen
+        webSockets = WebSockets.handOver(this, id, username, email, phone, validated);
 
     }
 
-    // Método que simula la actualización de los jugadores conectados
+    // Perfil revalidado después de abrir el menú con el de la caché
+    public void updateProfile(String username, String email, String phone, String validated) {
+        webSockets.updateProfile(username, email, phone, validated);
+    }
+
+    // La sesión guardada ya no vale: se cierra la conexión y se vuelve al login (solo si seguimos en el menú)
+    public void signOut() {
+        if (game.getScreen() != this) return;
+        webSockets.dispose();
+        game.setScreen(new LoginScreen(game));
+        dispose();
+    }
+
+    // Se llama desde el hilo del WebSocket: solo guarda el valor, la etiqueta se actualiza en render()
     public void updatePlayersCount(int newCount) {
         playersInMatch = newCount;
-        playersLabel.setText("Players: " + playersInMatch);
     }
 
     @Override
@@ -135,6 +150,12 @@ public class MenuScreen implements Screen {
 
     @Override
     public void render(float delta) {
+        int players = playersInMatch;
+        if (players != shownPlayers) {
+            shownPlayers = players;
+            playersLabel.setText("Players: " + players);
+        }
+
         batch.begin();
         // Dibujar el fondo
         batch.draw(backgroundTexture, 0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
@@ -162,7 +183,7 @@ public class MenuScreen implements Screen {
     @Override
     public void dispose() {
         stage.dispose();
-        backgroundTexture.dispose(); // Liberar la textura del fondo
+        // Las texturas son de MenuAssets y se comparten: no se liberan aquí
         batch.dispose();
         font.dispose();
     }
@@ -15,15 +15,8 @@ import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 
 import org.json.JSONObject;
 
-import okhttp3.Call;
-import okhttp3.Callback;  // Importa Callback de okhttp3
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import com.project.clases.ApiClient;
 
-import java.io.IOException;
 public class TermsScreen implements Screen {
 
     private final Game game;
@@ -172,8 +165,6 @@ public class TermsScreen implements Screen {
     private void registerUser() {
         System.out.println("🛠 Iniciando registro de usuario...");
     
-        String urlString = "https://bandera3.ieti.site/api/register";
-    
         // Crear el JSON para enviar
         JSONObject jsonPayload = new JSONObject();
         jsonPayload.put("nickname", this.nickname);
@@ -184,49 +175,25 @@ public class TermsScreen implements Screen {
         System.out.println("📦 Payload JSON a enviar:");
         System.out.println(jsonPayload.toString());
     
-        OkHttpClient client = new OkHttpClient();
-    
-        RequestBody body = RequestBody.create(
-            jsonPayload.toString(), MediaType.get("application/json; charset=utf-8")
-        );
-    
-        Request request = new Request.Builder()
-            .url(urlString)
-            .post(body)
-            .build();
-    
-        client.newCall(request).enqueue(new Callback() {
+        ApiClient.postJson("/api/register", jsonPayload, new ApiClient.ApiCallback<JSONObject>() {
             @Override
-            public void onFailure(Call call, IOException e) {
-                System.out.println("❌ Error durante el proceso de registro:");
-                e.printStackTrace();
-                Gdx.app.postRunnable(() -> showToast("Error de conexión: " + e.getMessage()));
+            public void onSuccess(JSONObject jsonResponse) {
+                // Si la respuesta es exitosa
+                String message = jsonResponse.optString("message", "Registro exitoso. Revisa tu email.");
+                showToast(message);
+                System.out.println("🎯 " + message);
             }
     
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                String responseBody = response.body().string();
-                System.out.println("📨 Respuesta del servidor:");
-                System.out.println(responseBody);
-    
-                try {
-                    JSONObject jsonResponse = new JSONObject(responseBody);
-    
-                    if (response.isSuccessful()) {
-                        // Si la respuesta es exitosa
-                        String message = jsonResponse.optString("message", "Registro exitoso. Revisa tu email.");
-                        Gdx.app.postRunnable(() -> showToast(message));
-                        System.out.println("🎯 " + message);
-                    } else {
-                        // Si la respuesta del servidor contiene un error
-                        String error = jsonResponse.optString("error", "Error desconocido durante registro");
-                        Gdx.app.postRunnable(() -> showToast("Error: " + error));
-                        System.out.println("⚠️ Error recibido: " + error);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    Gdx.app.postRunnable(() -> showToast("Error procesando respuesta del servidor"));
+            public void onError(int status, String error) {
+                if (status == 0) {
+                    showToast("Error de conexión: " + error);
+                    return;
                 }
+                // Si la respuesta del servidor contiene un error
+                String message = error != null ? error : "Error desconocido durante registro";
+                showToast("Error: " + message);
+                System.out.println("⚠️ Error recibido: " + message);
             }
         });
     }        
@@ -271,29 +238,17 @@ public class TermsScreen implements Screen {
         ));
     }
 
+    // Los términos se muestran desde la caché al momento y se revalidan en segundo plano
     private void fetchTerms() {
-        OkHttpClient client = new OkHttpClient();
-    
-        Request request = new Request.Builder()
-                .url("https://bandera3.ieti.site/api/terms")
-                .build();
-    
-        client.newCall(request).enqueue(new Callback() {
+        ApiClient.getTextCached("/api/terms", new ApiClient.ApiCallback<String>() {
             @Override
-            public void onFailure(Call call, IOException e) {
-                e.printStackTrace();
-                Gdx.app.postRunnable(() -> termsLabel.setText("Error al cargar los términos de uso."));
+            public void onSuccess(String terms) {
+                termsLabel.setText(terms);
             }
     
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    Gdx.app.postRunnable(() -> termsLabel.setText("Error al cargar los términos de uso."));
-                    return;
-                }
-    
-                final String responseData = response.body().string();
-                Gdx.app.postRunnable(() -> termsLabel.setText(responseData));
+            public void onError(int status, String error) {
+                termsLabel.setText("Error al cargar los términos de uso.");
             }
         });
     }
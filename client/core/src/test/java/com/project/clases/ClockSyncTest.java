@@ -0,0 +1,86 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// Las muestras se simulan con la hora local real: la respuesta "llega" al llamar a onResponse, así que el
+// RTT es prácticamente 0 salvo que se diga otra cosa y el offset sale con un error de fracciones de ms.
+public class ClockSyncTest {
+    private static final double WRAP = 4294967296.0;
+    private static final double TOLERANCE_MS = 2;
+
+    // Muestra con el reloj del servidor adelantado offset ms y rtt ms de ida y vuelta
+    private static void sample(ClockSync clock, double offset, double rtt) {
+        double t0 = ClockSync.localMillis() - rtt;
+        double server = t0 + rtt / 2 + offset;
+        clock.onResponse(t0, server, server);
+    }
+
+    @Test
+    public void firstSampleSetsTheOffset() {
+        ClockSync clock = new ClockSync();
+        assertFalse(clock.isSynced());
+
+        sample(clock, 10000, 0);
+        assertTrue(clock.isSynced());
+        assertEquals(10000, clock.getOffset(), TOLERANCE_MS);
+        assertEquals(ClockSync.localMillis() + 10000, clock.serverMillis(), TOLERANCE_MS);
+    }
+
+    @Test
+    public void slowSamplesDoNotMoveTheOffset() {
+        ClockSync clock = new ClockSync();
+        for (int i = 0; i < 4; i++) sample(clock, 10000, 0);
+
+        // Una respuesta que ha esperado 200 ms en una cola y llega con el offset sesgado
+        double t0 = ClockSync.localMillis() - 200;
+        clock.onResponse(t0, t0 + 10000 + 190, t0 + 10000 + 190);
+
+        assertEquals(200, clock.getLastRtt(), TOLERANCE_MS);
+        assertEquals(10000, clock.getOffset(), TOLERANCE_MS);
+    }
+
+    @Test
+    public void smallErrorsSlewAndLargeOnesStep() {
+        ClockSync clock = new ClockSync();
+        sample(clock, 10000, 0);
+
+        // 20 ms de diferencia: no salta, se corrige poco a poco
+        clock.reset();
+        sample(clock, 10020, 0);
+        assertEquals(10000, clock.getOffset(), TOLERANCE_MS);
+
+        // Tras reconectar a otro servidor con la hora muy distinta se salta directamente
+        clock.reset();
+        assertFalse(clock.isSynced());
+        sample(clock, -5000, 0);
+        assertTrue(clock.isSynced());
+        assertEquals(-5000, clock.getOffset(), TOLERANCE_MS);
+    }
+
+    @Test
+    public void convertsBetweenLocalAndServerTime() {
+        ClockSync clock = new ClockSync();
+        sample(clock, 10000, 0);
+
+        long local = System.nanoTime();
+        double server = clock.toServerMillis(local);
+        assertEquals(local / 1e6 + 10000, server, TOLERANCE_MS);
+        assertEquals(local / 1e6, clock.toLocalNanos(server) / 1e6, 0.01);
+    }
+
+    @Test
+    public void unwrapsThirtyTwoBitTimesAroundTheWrap() {
+        // Hora del servidor 1 s antes de una vuelta de 2^32 ms
+        double serverNow = 4 * WRAP - 1000;
+        ClockSync clock = new ClockSync();
+        sample(clock, serverNow - ClockSync.localMillis(), 0);
+
+        assertEquals(4 * WRAP - 1500, clock.unwrap((long) (WRAP - 1500)), 0);
+        // Justo después de la vuelta sigue siendo la más cercana, no 2^32 ms atrás
+        assertEquals(4 * WRAP + 500, clock.unwrap(500), 0);
+    }
+}
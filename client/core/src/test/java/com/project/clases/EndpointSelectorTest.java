@@ -0,0 +1,156 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.PingFrame;
+import org.java_websocket.framing.PongFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Nodos de prueba locales: servidores WebSocket que contestan los ping de /probe con un retraso fijo,
+// y puertos donde no escucha nadie para los nodos caídos.
+public class EndpointSelectorTest {
+    private final List<ProbeResponder> responders = new ArrayList<>();
+    private int savedPings;
+
+    private static class ProbeResponder extends WebSocketServer {
+        private final long delayMs;
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        ProbeResponder(long delayMs) {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            this.delayMs = delayMs;
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onWebsocketPing(WebSocket conn, Framedata frame) {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            conn.sendFrame(new PongFrame((PingFrame) frame));
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {}
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {}
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {}
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {}
+
+        String uri() {
+            return "ws://127.0.0.1:" + getPort();
+        }
+    }
+
+    @Before
+    public void fewerPings() {
+        savedPings = NetworkConfig.probePings;
+        NetworkConfig.probePings = 3;
+    }
+
+    @After
+    public void stopResponders() throws Exception {
+        NetworkConfig.probePings = savedPings;
+        for (ProbeResponder responder : responders) responder.stop(1000);
+    }
+
+    private String responder(long delayMs) throws Exception {
+        ProbeResponder responder = new ProbeResponder(delayMs);
+        responder.start();
+        responders.add(responder);
+        responder.started.await(5, TimeUnit.SECONDS);
+        return responder.uri();
+    }
+
+    // Puerto libre en el que ya no escucha nadie: la conexión se rechaza
+    private static String unreachable() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "ws://127.0.0.1:" + socket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void ordersByLatencyAndFailsOverToTheNextNode() throws Exception {
+        String downB = unreachable();
+        String slow = responder(80);
+        String downA = unreachable();
+        String fast = responder(0);
+
+        EndpointSelector selector = new EndpointSelector(new String[] {downB, slow, downA, fast});
+        assertEquals(URI.create(downB), selector.current()); // Sin medir, el primero configurado
+
+        selector.probe();
+
+        // El más rápido primero; los que no contestan al final, en el orden en que estaban configurados
+        assertEquals(URI.create(fast), selector.current());
+        selector.failover();
+        assertEquals(URI.create(slow), selector.current());
+        selector.failover();
+        assertEquals(URI.create(downB), selector.current());
+        selector.failover();
+        assertEquals(URI.create(downA), selector.current());
+        // Cuando han fallado todos se vuelve al mejor
+        selector.failover();
+        assertEquals(URI.create(fast), selector.current());
+    }
+
+    @Test
+    public void probeWaitsAtMostTheTimeout() throws Exception {
+        int savedTimeout = NetworkConfig.probeTimeoutMs;
+        NetworkConfig.probeTimeoutMs = 300;
+        try {
+            String fast = responder(0);
+            String stalled = responder(2000); // Abre la conexión pero tarda en contestar
+
+            EndpointSelector selector = new EndpointSelector(new String[] {stalled, fast});
+            long start = System.nanoTime();
+            selector.probe();
+            long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+            assertEquals(URI.create(fast), selector.current());
+            assertFalse("probe tardó " + elapsedMs + " ms", elapsedMs > 1500);
+        } finally {
+            NetworkConfig.probeTimeoutMs = savedTimeout;
+        }
+    }
+
+    @Test
+    public void singleNodeIsNeverProbedNorFailedOver() {
+        EndpointSelector selector = new EndpointSelector(new String[] {"ws://127.0.0.1:1"});
+        selector.probe();
+        assertFalse(selector.failover());
+        assertEquals(URI.create("ws://127.0.0.1:1"), selector.current());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnEmptyConfiguration() {
+        new EndpointSelector(new String[] {"no es una uri"});
+    }
+}
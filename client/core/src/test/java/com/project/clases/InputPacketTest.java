@@ -0,0 +1,34 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+// Los mismos bytes los decodifica server/test/utilsSnapshots.test.js (decodeInput)
+public class InputPacketTest {
+    private static ByteBuffer bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) bytes[i] = (byte) values[i];
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Test
+    public void encodesStateAxesAndSequence() {
+        ByteBuffer packet = new InputPacket().encode(64, -64, "RIGHT", 258);
+        assertEquals(InputPacket.SIZE, packet.remaining());
+        assertEquals(bytes(0x13, 64, 0xC0, 0, 0, 1, 2), packet);
+    }
+
+    @Test
+    public void clampsAxesAndKeepsTheFullSequence() {
+        ByteBuffer packet = new InputPacket().encode(500, -500, "bottom", -1);
+        assertEquals(bytes(0x43, 127, -127, 0xFF, 0xFF, 0xFF, 0xFF), packet);
+    }
+
+    @Test
+    public void unknownStatesAreSentAsIdle() {
+        assertEquals(0x03, new InputPacket().encode(0, 0, "JUMP", 0).get(0));
+    }
+}
@@ -0,0 +1,112 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MessageReaderTest {
+    private static final String MESSAGE = "{ \"type\" : \"update\", \"gameState\": {\"players\": [{\"id\": \"a}\"}, [1, 2]]},"
+            + " \"tick\": 12, \"ratio\": -1.5e1, \"seq\": 3.9, \"ok\": true, \"nickname\": null,"
+            + " \"text\": \"l\\u00ednea\\n\\\"dos\\\"\" }";
+
+    @Test
+    public void readsTopLevelFieldsAndSkipsNestedValues() {
+        MessageReader reader = new MessageReader().reset(MESSAGE);
+        while (reader.nextField()) {
+            if (reader.fieldIs("type")) {
+                assertTrue(reader.valueIs("update"));
+                assertFalse(reader.valueIs("updat"));
+                assertEquals("update", reader.readString());
+            } else if (reader.fieldIs("tick")) {
+                assertEquals(12, reader.readLong());
+            } else if (reader.fieldIs("ratio")) {
+                assertEquals(-15.0, reader.readDouble(), 0);
+            } else if (reader.fieldIs("seq")) {
+                assertEquals(3, reader.readLong()); // Con decimales se trunca
+            } else if (reader.fieldIs("ok")) {
+                assertTrue(reader.readBoolean());
+            } else if (reader.fieldIs("nickname")) {
+                assertNull(reader.readString());
+            } else if (reader.fieldIs("text")) {
+                assertEquals("línea\n\"dos\"", reader.readString());
+            }
+            // gameState no se lee: nextField lo salta entero (con la llave dentro del string incluida)
+        }
+
+        assertTrue(reader.findField("tick"));
+        assertEquals(12, reader.readLong());
+        assertTrue(reader.findField("gameState"));
+        reader.skipValue();
+        assertTrue(reader.nextField());
+        assertTrue(reader.fieldIs("tick"));
+        assertFalse(reader.findField("missing"));
+    }
+
+    @Test
+    public void walksNestedObjectsAndArrays() {
+        MessageReader reader = new MessageReader().reset(MESSAGE);
+        assertTrue(reader.findField("gameState"));
+        reader.beginObject();
+        assertTrue(reader.nextField());
+        assertTrue(reader.fieldIs("players"));
+        reader.beginArray();
+
+        assertTrue(reader.nextElement());
+        reader.beginObject();
+        assertTrue(reader.nextField());
+        assertEquals("a}", reader.readString());
+        reader.endObject();
+
+        // El segundo elemento no se lee: endArray lo salta
+        reader.endArray();
+        assertFalse(reader.nextField());
+        reader.endObject();
+
+        // De vuelta en el objeto raíz
+        assertTrue(reader.nextField());
+        assertTrue(reader.fieldIs("tick"));
+        assertEquals(12, reader.readLong());
+    }
+
+    @Test
+    public void readsWhatMessageWriterWrites() {
+        ByteBuffer buffer = new MessageWriter().begin("userInfo")
+                .string("nickname", "Ñandú \"😀\"")
+                .number("seq", -7L)
+                .number("x", 0.125f)
+                .bool("ready", false)
+                .end();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        MessageReader reader = new MessageReader().reset(new String(bytes, StandardCharsets.UTF_8));
+        assertTrue(reader.findField("type"));
+        assertEquals("userInfo", reader.readString());
+        assertTrue(reader.findField("nickname"));
+        assertEquals("Ñandú \"😀\"", reader.readString());
+        assertTrue(reader.findField("seq"));
+        assertEquals(-7, reader.readLong());
+        assertTrue(reader.findField("x"));
+        assertEquals(0.125, reader.readDouble(), 0);
+        assertTrue(reader.findField("ready"));
+        assertFalse(reader.readBoolean());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnterminatedStrings() {
+        MessageReader reader = new MessageReader().reset("{\"type\": \"upd");
+        reader.nextField();
+        reader.readString();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonObjects() {
+        new MessageReader().reset("[1, 2]");
+    }
+}
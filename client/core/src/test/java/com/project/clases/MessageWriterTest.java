@@ -0,0 +1,74 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+public class MessageWriterTest {
+    // Decodificación estricta: los bytes tienen que ser UTF-8 válido, como exige ws en el servidor
+    private static JSONObject parse(ByteBuffer buffer) throws CharacterCodingException {
+        String text = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(buffer).toString();
+        return new JSONObject(text);
+    }
+
+    @Test
+    public void writesTheSameFieldsAsJsonObject() throws Exception {
+        MessageWriter writer = new MessageWriter();
+        JSONObject message = parse(writer.begin("updateMovement")
+                .number("seq", 42L)
+                .number("x", -0.75f)
+                .number("y", 1f)
+                .bool("attacking", false)
+                .string("nickname", "Ñandú \"el\" \\rápido")
+                .string("missing", null)
+                .end());
+
+        assertEquals("updateMovement", message.getString("type"));
+        assertEquals("updateMovement", writer.getType());
+        assertEquals(42, message.getLong("seq"));
+        assertEquals(-0.75, message.getDouble("x"), 0);
+        assertEquals(1, message.getDouble("y"), 0);
+        assertFalse(message.getBoolean("attacking"));
+        assertEquals("Ñandú \"el\" \\rápido", message.getString("nickname"));
+        assertFalse(message.has("missing"));
+    }
+
+    @Test
+    public void growsForMessagesLargerThanTheBuffer() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) text.append("mensaje largo ").append(i).append(' ');
+
+        MessageWriter writer = new MessageWriter(16);
+        for (int round = 0; round < 2; round++) {
+            JSONObject message = parse(writer.begin("chat").string("text", text.toString()).number("n", (long) round).end());
+            assertEquals(text.toString(), message.getString("text"));
+            assertEquals(round, message.getLong("n"));
+        }
+    }
+
+    @Test
+    public void encodesCharactersOutsideTheBmpAsFourBytes() throws Exception {
+        String emoji = "😀"; // U+1F600
+        ByteBuffer buffer = new MessageWriter().begin("chat").string("text", "a" + emoji).end();
+
+        byte[] expected = ("{\"type\":\"chat\",\"text\":\"a" + emoji + "\"}").getBytes(StandardCharsets.UTF_8);
+        assertEquals(ByteBuffer.wrap(expected), buffer);
+        assertEquals("a" + emoji, parse(buffer).getString("text"));
+    }
+
+    @Test
+    public void loneSurrogatesAreReplaced() throws Exception {
+        JSONObject message = parse(new MessageWriter().begin("chat").string("text", "a\uD83Db\uDE00").end());
+        assertEquals("a?b?", message.getString("text"));
+    }
+}
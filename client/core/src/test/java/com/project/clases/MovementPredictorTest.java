@@ -0,0 +1,124 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class MovementPredictorTest {
+    private static final int HANDLE = 3;
+    private static final float EPSILON = 1e-4f;
+
+    private long tick = 0;
+
+    // Snapshot con nuestro jugador en (x, y) y el ack de la entrada seq aplicada steps ticks
+    private GameState snapshot(float x, float y, int seq, int steps) {
+        GameState state = new GameState();
+        state.activate(HANDLE);
+        state.positions[HANDLE * 2] = x;
+        state.positions[HANDLE * 2 + 1] = y;
+        state.tick = ++tick;
+        state.hasAck = true;
+        state.running = true;
+        state.ackSequence = seq;
+        state.ackSteps = steps;
+        return state;
+    }
+
+    // Mapa de 32×32 sin agua ni torres salvo la casilla de agua indicada (fila 0 = arriba del mapa)
+    private static JSONObject mapWithWater(int row, int col) {
+        JSONArray water = new JSONArray();
+        JSONArray towers = new JSONArray();
+        for (int r = 0; r < 32; r++) {
+            JSONArray waterRow = new JSONArray();
+            JSONArray towersRow = new JSONArray();
+            for (int c = 0; c < 32; c++) {
+                waterRow.put(r == row && c == col ? 0 : -1);
+                towersRow.put(-1);
+            }
+            water.put(waterRow);
+            towers.put(towersRow);
+        }
+        JSONArray layers = new JSONArray()
+                .put(new JSONObject().put("name", "water0").put("tileMap", water))
+                .put(new JSONObject().put("name", "towers").put("tileMap", towers));
+        return new JSONObject().put("levels", new JSONArray().put(new JSONObject().put("layers", layers)));
+    }
+
+    @Test
+    public void inactiveUntilTheServerSendsAnAck() {
+        MovementPredictor predictor = new MovementPredictor(new JSONObject());
+        GameState state = snapshot(500, 500, 0, 0);
+        state.hasAck = false;
+        predictor.reconcile(state, HANDLE);
+        assertFalse(predictor.isActive());
+
+        predictor.reconcile(snapshot(500, 500, 0, 0), HANDLE);
+        assertTrue(predictor.isActive());
+
+        GameState stopped = snapshot(500, 500, 0, 0);
+        stopped.running = false;
+        predictor.reconcile(stopped, HANDLE);
+        assertFalse(predictor.isActive());
+    }
+
+    @Test
+    public void replaysTheTicksTheServerHasNotApplied() {
+        MovementPredictor predictor = new MovementPredictor(new JSONObject());
+        predictor.reconcile(snapshot(500, 500, 0, 0), HANDLE);
+
+        predictor.step(3, 1, 1f, 0f);
+        assertEquals(507.2f, predictor.getX(), EPSILON);
+
+        // El servidor ha aplicado 2 de los 3 ticks: queda uno por volver a aplicar
+        predictor.reconcile(snapshot(504.8f, 500, 1, 2), HANDLE);
+        assertEquals(507.2f, predictor.getX(), EPSILON);
+        assertEquals(500f, predictor.getY(), EPSILON);
+
+        // Un snapshot repetido (mismo tick) no vuelve a reconciliar
+        GameState repeated = snapshot(0, 0, 1, 3);
+        repeated.tick = tick - 1;
+        predictor.reconcile(repeated, HANDLE);
+        assertEquals(507.2f, predictor.getX(), EPSILON);
+    }
+
+    @Test
+    public void smallCorrectionsAreSmoothedAndLargeOnesSnap() {
+        MovementPredictor predictor = new MovementPredictor(new JSONObject());
+        predictor.reconcile(snapshot(500, 500, 0, 0), HANDLE);
+        predictor.step(3, 1, 1f, 0f);
+
+        // El servidor está 4 px más allá: se parte de lo que se veía y se corrige poco a poco
+        predictor.reconcile(snapshot(508.8f, 500, 1, 2), HANDLE);
+        assertEquals(507.2f, predictor.getX(), EPSILON);
+        predictor.update(0.05f);
+        assertEquals(509.2f, predictor.getX(), EPSILON);
+        predictor.update(1f);
+        assertEquals(511.2f, predictor.getX(), EPSILON);
+
+        // Más de SNAP_DISTANCE: se salta directamente
+        predictor.reconcile(snapshot(800, 500, 1, 3), HANDLE);
+        assertEquals(800f, predictor.getX(), EPSILON);
+    }
+
+    @Test
+    public void goldSlowsDownAndBlockedTilesStopTheMove() {
+        // Agua en la fila 31 del JSON, que es la y 0..64 del mundo, columna 1 (x 64..128)
+        MovementPredictor predictor = new MovementPredictor(mapWithWater(31, 1));
+        assertFalse(predictor.isPositionValid(100, 10));
+        assertTrue(predictor.isPositionValid(100, 70));
+        assertFalse(predictor.isPositionValid(-1, 10));
+
+        GameState state = snapshot(63, 10, 0, 0);
+        state.hasGold[HANDLE] = true;
+        predictor.reconcile(state, HANDLE);
+        predictor.step(1, 1, 0f, 1f);
+        assertEquals(10f + 2.4f / 1.5f, predictor.getY(), EPSILON);
+
+        predictor.step(1, 1, 1f, 0f);
+        assertEquals(63f, predictor.getX(), EPSILON);
+    }
+}
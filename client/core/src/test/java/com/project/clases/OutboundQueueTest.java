@@ -0,0 +1,103 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class OutboundQueueTest {
+    private static final int MAX_CRITICAL = 8;
+
+    // Socket de prueba: mientras stalled es true la librería "aún tiene datos pendientes" (backpressure)
+    private static class FakeSender implements OutboundQueue.Sender {
+        volatile boolean stalled = true;
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public boolean hasBufferedData() {
+            return stalled;
+        }
+
+        @Override
+        public void send(ByteBuffer frame, boolean binary, Array<String> types, IntArray lengths) {
+            byte[] bytes = new byte[frame.remaining()];
+            frame.get(bytes);
+            sent.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private final FakeSender sender = new FakeSender();
+    private final OutboundQueue queue = new OutboundQueue(sender, 1024, MAX_CRITICAL, false);
+
+    @After
+    public void dispose() {
+        queue.dispose();
+    }
+
+    private void waitForSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sender.sent.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    }
+
+    @Test
+    public void criticalQueueIsBoundedWhileTheSocketIsStalled() throws Exception {
+        queue.enqueue("join", OutboundQueue.CRITICAL, "{\"type\":\"join\"}");
+        for (int i = 0; i < 100; i++) {
+            queue.enqueue("attack", OutboundQueue.CRITICAL, "{\"type\":\"attack\",\"n\":" + i + "}");
+            queue.flush();
+        }
+        Thread.sleep(50);
+
+        // Nada sale mientras hay backpressure, y la cola no pasa del límite
+        assertTrue(sender.sent.isEmpty());
+        assertEquals(MAX_CRITICAL, queue.getDepth());
+        assertEquals(101 - MAX_CRITICAL, queue.getDropped());
+
+        // Se conserva el join y los ataques más recientes, en orden
+        sender.stalled = false;
+        waitForSent(MAX_CRITICAL);
+        assertEquals(MAX_CRITICAL, sender.sent.size());
+        assertEquals("{\"type\":\"join\"}", sender.sent.get(0));
+        for (int i = 1; i < MAX_CRITICAL; i++) {
+            assertEquals("{\"type\":\"attack\",\"n\":" + (100 - MAX_CRITICAL + i) + "}", sender.sent.get(i));
+        }
+        assertEquals(0, queue.getQueuedBytes());
+    }
+
+    @Test
+    public void onlyTheLatestMovementAndBoundedNormalMessagesWait() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue("updateMovement", OutboundQueue.MOVEMENT, "{\"type\":\"updateMovement\",\"seq\":" + i + "}");
+        }
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 200; i++) padding.append('x');
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue("chat", OutboundQueue.NORMAL, "{\"type\":\"chat\",\"n\":" + i + ",\"p\":\"" + padding + "\"}");
+        }
+        queue.flush();
+
+        assertTrue(queue.getQueuedBytes() <= 1024);
+        int depth = queue.getDepth();
+
+        sender.stalled = false;
+        waitForSent(depth);
+        assertEquals("{\"type\":\"updateMovement\",\"seq\":9}", sender.sent.get(0));
+        // Los normales que quedan son los más recientes
+        assertTrue(sender.sent.get(depth - 1).startsWith("{\"type\":\"chat\",\"n\":9,"));
+    }
+}
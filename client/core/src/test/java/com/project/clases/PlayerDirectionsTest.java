@@ -0,0 +1,59 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class PlayerDirectionsTest {
+    // Keyframe binario (formato de utilsSnapshots.js) con un solo jugador en el handle 0
+    private static ByteBuffer keyframe(long tick, String id, byte state) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put(SnapshotDecoder.KEYFRAME).put((byte) 0).putInt((int) tick);
+        buffer.put((byte) 1);
+        buffer.put((byte) 0).put((byte) 0x1F);           // handle 0, todos los campos
+        buffer.putShort((short) 1600).putShort((short) 1600);
+        buffer.put(state).put(GameState.TEAM_BLUE).put((byte) 0);
+        buffer.put((byte) idBytes.length).put(idBytes).put((byte) 0);
+        buffer.put((byte) 0);                             // sin eliminados
+        buffer.put((byte) 0);                             // sin oro
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void directionSurvivesKeyframesForTheSamePlayer() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        GameState state = new GameState();
+        PlayerDirections directions = new PlayerDirections();
+
+        decoder.decode(keyframe(1, "a1", GameState.STATE_LEFT), state);
+        directions.update(state);
+        assertEquals(GameState.STATE_LEFT, directions.get(0));
+
+        // Parado: el keyframe siguiente trae un String nuevo con el mismo id
+        decoder.decode(keyframe(2, "a1", GameState.STATE_IDLE), state);
+        directions.update(state);
+        assertEquals(GameState.STATE_LEFT, directions.get(0));
+
+        decoder.decode(keyframe(3, "a1", GameState.STATE_IDLE), state);
+        directions.update(state);
+        assertEquals(GameState.STATE_LEFT, directions.get(0));
+    }
+
+    @Test
+    public void reusedHandleStartsFacingRight() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        GameState state = new GameState();
+        PlayerDirections directions = new PlayerDirections();
+
+        decoder.decode(keyframe(1, "a1", GameState.STATE_TOP), state);
+        directions.update(state);
+        decoder.decode(keyframe(2, "b2", GameState.STATE_IDLE), state);
+        directions.update(state);
+        assertEquals(GameState.STATE_RIGHT, directions.get(0));
+    }
+}
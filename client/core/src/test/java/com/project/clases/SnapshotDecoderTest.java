@@ -0,0 +1,165 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+// Frames generados por utilsSnapshots.js: son los mismos de server/test/utilsSnapshots.test.js,
+// así el codificador y el decodificador se prueban contra los mismos bytes.
+public class SnapshotDecoderTest {
+    // Jugador a1 "Ñandú" en (100.5, 200), RIGHT, red, con oro; b2 sin nickname en (10, 20), IDLE, blue;
+    // un oro en (512, 640); tick 1, hora 123456
+    private static final String KEYFRAME = "0102000000010001e24002001f06480c8001020102613107c391616e64c3ba011f00a0014000000002623200000120002800";
+    // a1 pasa a x = 101, b2 se elimina, el oro no cambia; tick 2, hora 123476
+    private static final String DELTA = "0202000000020001e25401000106500c800101ff";
+    // El mismo delta con el ack seq 42, 3 ticks aplicados, partida en marcha
+    private static final String DELTA_ACK = "0203000000020001e25401000106500c800101ff0000002a000301";
+
+    private static ByteBuffer hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Test
+    public void keyframeReplacesTheState() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        GameState state = new GameState();
+        state.activate(7);
+        state.setId(7, "old");
+
+        assertTrue(decoder.decode(hex(KEYFRAME), state));
+
+        assertEquals(2, state.playerCount);
+        assertEquals(-1, state.findHandle("old"));
+        assertEquals(1, state.tick);
+        assertEquals(123456, state.serverTime);
+
+        int a = state.findHandle("a1");
+        assertEquals(0, a);
+        assertEquals("Ñandú", state.nicknames[a]);
+        assertEquals(100.5f, state.getX(a), 0f);
+        assertEquals(200f, state.getY(a), 0f);
+        assertEquals(GameState.STATE_RIGHT, state.states[a]);
+        assertEquals(GameState.TEAM_RED, state.teams[a]);
+        assertTrue(state.hasGold[a]);
+
+        int b = state.findHandle("b2");
+        assertEquals(1, b);
+        assertNull(state.nicknames[b]);
+        assertEquals(10f, state.getX(b), 0f);
+        assertEquals(GameState.TEAM_BLUE, state.teams[b]);
+        assertFalse(state.hasGold[b]);
+
+        assertEquals(1, state.goldCount);
+        assertEquals(512f, state.getGoldX(0), 0f);
+        assertEquals(640f, state.getGoldY(0), 0f);
+        assertFalse(state.hasAck);
+    }
+
+    @Test
+    public void deltaOnlyTouchesChangedFields() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        GameState state = new GameState();
+        decoder.decode(hex(KEYFRAME), state);
+
+        assertTrue(decoder.decode(hex(DELTA_ACK), state));
+
+        int a = state.findHandle("a1");
+        assertEquals(1, state.playerCount);
+        assertEquals(-1, state.findHandle("b2"));
+        assertEquals(101f, state.getX(a), 0f);
+        assertEquals(200f, state.getY(a), 0f);
+        assertEquals("Ñandú", state.nicknames[a]);
+        assertEquals(GameState.TEAM_RED, state.teams[a]);
+        assertTrue(state.hasGold[a]);
+        assertEquals(2, state.tick);
+
+        // GOLD_UNCHANGED conserva el oro anterior
+        assertEquals(1, state.goldCount);
+        assertEquals(512f, state.getGoldX(0), 0f);
+
+        assertTrue(state.hasAck);
+        assertEquals(42, state.ackSequence);
+        assertEquals(3, state.ackSteps);
+        assertTrue(state.running);
+    }
+
+    @Test
+    public void deltaBeforeKeyframeIsIgnored() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        GameState state = new GameState();
+        assertFalse(decoder.decode(hex(DELTA), state));
+        assertEquals(0, state.playerCount);
+
+        decoder.decode(hex(KEYFRAME), state);
+        decoder.reset();
+        assertFalse(decoder.decode(hex(DELTA), state));
+        assertEquals(2, state.playerCount);
+    }
+
+    @Test
+    public void jsonUpdateKeepsHandlesAndRemovesMissingPlayers() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        MessageReader reader = new MessageReader();
+        GameState state = new GameState();
+        decoder.decodeJson(reader.reset("{\"tick\":5,\"gameState\":{\"players\":["
+                + "{\"id\":\"a1\",\"nickname\":\"Ana\",\"position\":{\"x\":1,\"y\":2},\"state\":\"LEFT\",\"team\":\"purple\",\"hasGold\":false},"
+                + "{\"id\":\"b2\",\"nickname\":null,\"position\":{\"x\":3,\"y\":4},\"state\":\"IDLE\",\"team\":\"yellow\",\"hasGold\":true}],"
+                + "\"gold\":[{\"position\":{\"x\":7,\"y\":8}}]}}"), state);
+        int b = state.findHandle("b2");
+
+        decoder.decodeJson(reader.reset("{\"gameState\":{\"players\":["
+                + "{\"id\":\"b2\",\"position\":{\"x\":5,\"y\":6},\"state\":\"TOP\",\"team\":\"yellow\",\"hasGold\":true}]},"
+                + "\"ack\":{\"seq\":9,\"steps\":1,\"running\":true}}"), state);
+
+        assertEquals(1, state.playerCount);
+        assertEquals(b, state.findHandle("b2"));
+        assertEquals(-1, state.findHandle("a1"));
+        assertEquals(5f, state.getX(b), 0f);
+        assertEquals(GameState.STATE_TOP, state.states[b]);
+        assertEquals(0, state.goldCount);
+        assertEquals(6, state.tick); // Sin tick se cuenta uno más que el anterior
+        assertEquals(9, state.ackSequence);
+    }
+
+    @Test
+    public void jsonUpdateIsReadInAnyFieldOrder() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        MessageReader reader = new MessageReader();
+        GameState state = new GameState();
+
+        // Sin gameState no se toca el estado
+        assertFalse(decoder.decodeJson(reader.reset("{\"type\":\"update\",\"tick\":3}"), state));
+        assertEquals(0, state.tick);
+
+        // Como lo manda app.js: type, tick, serverTime y ack antes del gameState; el id del jugador al final
+        assertTrue(decoder.decodeJson(reader.reset("{\"type\":\"update\",\"tick\":7,\"serverTime\":1234,"
+                + "\"ack\":{\"seq\":4,\"steps\":2,\"running\":false},\"gameState\":{\"gold\":[{\"position\":{\"x\":1.5,\"y\":2}}],"
+                + "\"players\":[{\"position\":{\"y\":20,\"x\":10.25},\"extra\":[1,{\"a\":\"}\"}],\"team\":\"yellow\","
+                + "\"state\":\"BOTTOM\",\"hasGold\":true,\"nickname\":\"Bea\",\"id\":\"c3\"}]}}"), state));
+
+        int c = state.findHandle("c3");
+        assertEquals(1, state.playerCount);
+        assertEquals(10.25f, state.getX(c), 0f);
+        assertEquals(20f, state.getY(c), 0f);
+        assertEquals(GameState.STATE_BOTTOM, state.states[c]);
+        assertEquals(GameState.teamCode("yellow"), state.teams[c]);
+        assertTrue(state.hasGold[c]);
+        assertEquals("Bea", state.nicknames[c]);
+        assertEquals(1, state.goldCount);
+        assertEquals(1.5f, state.getGoldX(0), 0f);
+        assertEquals(7, state.tick);
+        assertEquals(1234, state.serverTime);
+        assertTrue(state.hasAck);
+        assertEquals(2, state.ackSteps);
+        assertFalse(state.running);
+    }
+}
@@ -0,0 +1,68 @@
+package com.project.clases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SnapshotExchangeTest {
+    private static GameState stateAt(GameState state, long tick) {
+        state.tick = tick;
+        state.positions[0] = tick; // Segunda copia del tick para detectar estados a medio copiar
+        return state;
+    }
+
+    @Test
+    public void nothingUntilTheFirstPublish() {
+        assertNull(new SnapshotExchange().acquire());
+    }
+
+    @Test
+    public void acquireReturnsTheLatestAndKeepsItUntilTheNextCall() {
+        SnapshotExchange exchange = new SnapshotExchange();
+        GameState source = new GameState();
+
+        exchange.publish(stateAt(source, 1));
+        exchange.publish(stateAt(source, 2));
+        GameState front = exchange.acquire();
+        assertNotSame(source, front);
+        assertEquals(2, front.tick);
+
+        // Lo que publique el productor no toca el estado que tiene el render
+        exchange.publish(stateAt(source, 3));
+        exchange.publish(stateAt(source, 4));
+        assertEquals(2, front.tick);
+
+        assertEquals(4, exchange.acquire().tick);
+        // Sin publicaciones nuevas se repite el mismo estado
+        GameState again = exchange.acquire();
+        assertSame(again, exchange.acquire());
+        assertEquals(4, again.tick);
+    }
+
+    @Test
+    public void concurrentReadsSeeWholeSnapshotsInOrder() throws Exception {
+        final int ticks = 100000;
+        SnapshotExchange exchange = new SnapshotExchange();
+        Thread producer = new Thread(() -> {
+            GameState source = new GameState();
+            for (int tick = 1; tick <= ticks; tick++) {
+                exchange.publish(stateAt(source, tick));
+            }
+        });
+        producer.start();
+
+        long last = 0;
+        while (last < ticks) {
+            GameState state = exchange.acquire();
+            if (state == null) continue;
+            assertEquals(state.tick, (long) state.positions[0]);
+            assertTrue(state.tick >= last);
+            last = state.tick;
+        }
+        producer.join();
+    }
+}
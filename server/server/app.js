@@ -2,18 +2,22 @@ const express = require('express');
 const game = require('./gameLogic.js');
 const Obj = require('./utilsWebSockets.js');
 const GameLoop = require('./utilsGameLoop.js');
+const SnapshotEncoder = require('./utilsSnapshots.js');
+const clock = require('./utilsClock.js');
 const { obtenerPartidas, clearMongoDb } = require('./partidasDb.js');
 const { borrarTodosLosJugadores, obtenerJugadores } = require('./jugadoresDb.js');
-const { crearUsuario, validarUsuario, obtenerUsuarioPorToken, obtenerUsuarios, clearUsuariosDb, obtenerUsuarioPorNickname } = require('./usuariosDb');
+const { crearUsuario, validarUsuario, obtenerUsuarioPorToken, obtenerUsuarios, clearUsuariosDb, obtenerUsuarioPorNickname, crearSesion, obtenerUsuarioPorSesion } = require('./usuariosDb');
 const path = require('path');
 const fs = require('fs');
+const crypto = require('crypto');
 const { v4: uuidv4 } = require('uuid');
 const nodemailer = require('nodemailer');
 
 let gameLoop = new GameLoop();
+const snapshots = new SnapshotEncoder();
 
 const debug = true;
-const port = 3000;
+const port = parseInt(process.env.PORT || "3000", 10); // PORT permite levantar varios nodos locales de prueba
 
 // Inicialitzar WebSockets i la lògica del joc
 const ws = new Obj();
@@ -36,6 +40,20 @@ const transporter = nodemailer.createTransport({
     }
 });
 
+// Sesiones persistentes: el cliente guarda el token y al volver a abrir el juego entra directamente
+// al menú, comprobándolo con /api/session. En la base de datos solo queda el hash.
+const SESSION_DAYS = 30;
+
+function hashToken(token) {
+    return crypto.createHash('sha256').update(token).digest('hex');
+}
+
+// Perfil que se envía al cliente (y que este guarda en disco): sin contraseña, token de confirmación ni sesiones
+function perfilPublico(usuario) {
+    const { password, token, sesiones, ...perfil } = usuario;
+    return perfil;
+}
+
 app.post('/api/login', async (req, res) => {
     console.log("📡 Petición POST /api/login recibida");
     const { nickname, password } = req.body;
@@ -59,7 +77,9 @@ app.post('/api/login', async (req, res) => {
         }
 
         console.log('✅ Login exitoso');
-        res.json({ message: 'Login exitoso', nickname: usuario.nickname });
+        const sessionToken = crypto.randomBytes(32).toString('hex');
+        const sesionCreada = await crearSesion(usuario.nickname, hashToken(sessionToken));
+        res.json({ message: 'Login exitoso', nickname: usuario.nickname, ...(sesionCreada && { sessionToken }) });
 
     } catch (error) {
         console.error('❌ Error en login:', error);
@@ -108,15 +128,16 @@ app.get('/api/usuarios', async (req, res) => {
     }
 });
 
+// sendFile pone ETag y Last-Modified y contesta 304 si el cliente ya tiene la versión actual.
+// max-age 0: el cliente guarda la copia pero la revalida cada vez.
 app.get('/api/terms', (req, res) => {
     const termsPath = path.join(__dirname, 'assets/terms.txt');
 
-    fs.readFile(termsPath, 'utf8', (err, data) => {
-        if (err) {
+    res.sendFile(termsPath, { maxAge: 0, headers: { 'Content-Type': 'text/plain; charset=utf-8' } }, (err) => {
+        if (err && !res.headersSent) {
             console.error("❌ Error leyendo términos:", err);
-            return res.status(500).json({ error: "Error interno del servidor" });
+            res.status(500).json({ error: "Error interno del servidor" });
         }
-        res.send(data);
     });
 });
 
@@ -208,7 +229,11 @@ app.get('/api/usuario/:nickname', async (req, res) => {
         }
 
         console.log(`✅ Usuario encontrado: ${usuario.nickname}`);
-        return res.json(usuario);
+
+        // Una vez aceptado el login el cliente guarda el perfil con su ETag y lo revalida con If-None-Match
+        // (Express contesta 304 si no ha cambiado)
+        res.set('Cache-Control', 'private, no-cache');
+        return res.json(perfilPublico(usuario));
 
     } catch (error) {
         console.error('❌ Error al obtener el usuario:', error);
@@ -216,6 +241,37 @@ app.get('/api/usuario/:nickname', async (req, res) => {
     }
 });
 
+// Comprueba el token de sesión (cabecera Authorization: Bearer) y devuelve el perfil actual.
+// El cuerpo es el mismo que el de /api/usuario, así que vale el mismo ETag: si el cliente manda el del perfil
+// que tiene guardado y no ha cambiado, Express contesta 304 (solo después de validar la sesión).
+app.get('/api/session', async (req, res) => {
+    const auth = req.get('Authorization') || '';
+    const sessionToken = auth.startsWith('Bearer ') ? auth.slice(7) : null;
+
+    res.set('Cache-Control', 'private, no-cache');
+    res.vary('Authorization');
+    if (!sessionToken) {
+        return res.status(401).json({ error: 'Sesión no válida' });
+    }
+
+    try {
+        const hash = hashToken(sessionToken);
+        const usuario = await obtenerUsuarioPorSesion(hash);
+        const sesion = usuario && usuario.sesiones.find(s => s.hash === hash);
+
+        if (!sesion || Date.now() - new Date(sesion.fecha).getTime() > SESSION_DAYS * 24 * 60 * 60 * 1000) {
+            return res.status(401).json({ error: 'Sesión no válida o caducada' });
+        }
+
+        console.log(`✅ Sesión válida: ${usuario.nickname}`);
+        return res.json(perfilPublico(usuario));
+
+    } catch (error) {
+        console.error('❌ Error al comprobar la sesión:', error);
+        return res.status(500).json({ error: 'Error interno del servidor' });
+    }
+});
+
 // Inicialitzar servidor HTTP
 const httpServer = app.listen(port, () => {
     console.log(`Servidor HTTP escuchando en: http://localhost:${port}`);
@@ -234,7 +290,8 @@ ws.onConnection = (socket, id, clientIp) => {
 
     const message = {
         type: "clientId",
-        id: id
+        id: id,
+        resumeToken: game.issueResumeToken(id),
     };
 
     socket.send(JSON.stringify(message));
@@ -246,9 +303,22 @@ ws.onMessage = (socket, id, msg) => {
     game.handleMessage(id, msg, socket);
 };
 
+ws.onBinaryMessage = (socket, id, buffer) => {
+    game.handleBinaryMessage(id, buffer, socket);
+};
+
 ws.onClose = (socket, id) => {
     if (debug) console.log("WebSocket client disconnected: " + id);
-    game.removeClient(id);
+    game.disconnectClient(id);
+    snapshots.forget(id);
+};
+
+// Una conexión nueva ha retomado la sesión de id: a partir de ahora sus mensajes son de id
+game.onResume = (socket, newId, id, previousSocket) => {
+    ws.rebind(socket, id);
+    if (previousSocket && previousSocket !== socket) ws.detach(previousSocket);
+    snapshots.forget(newId);
+    snapshots.forget(id); // El primer update que reciba será un keyframe
 };
 
 const prevStates = new Map();
@@ -256,6 +326,8 @@ const prevStates = new Map();
 gameLoop.run = (fps) => {
 
     game.lobbys.forEach((lobby, lobbyId) => {
+        game.stepMovement(lobbyId);
+
         const gameState = game.getGameState(lobbyId);
 
         const gameStateStr = JSON.stringify(gameState);
@@ -264,22 +336,36 @@ gameLoop.run = (fps) => {
 
         prevStates.set(lobbyId, gameStateStr);
 
-        Object.keys(lobby.teams).forEach(teamKey => {
-            const team = lobby.teams[teamKey];
-            team.forEach(clientId => {
-                const client = game.clients.get(clientId);
-                if (client) {
-                    client.socket.send(JSON.stringify({ type: "update", gameState }));
-                }
-            });
-        });
+        // El JSON se serializa una vez por lobby y el binario se codifica como keyframe o delta.
+        // Solo el ack de la entrada de cada jugador se añade por destinatario. El tick del lobby
+        // también va en el JSON para que el cliente pueda detectar huecos, y la hora del servidor
+        // para que lo coloque en su línea de tiempo.
+        const serverTime = Math.floor(clock.now());
+        const frame = snapshots.encode(lobbyId, gameState, serverTime);
+        const updatePrefix = '{"type":"update","tick":' + frame.tick + ',"serverTime":' + serverTime;
+        const updateStr = updatePrefix + ',"gameState":' + gameStateStr + '}';
 
-        lobby.spectators.forEach(clientId => {
+        const sendUpdate = (clientId) => {
             const client = game.clients.get(clientId);
-            if (client) {
-                client.socket.send(JSON.stringify({ type: "update", gameState }));
+            if (!client) return;
+
+            const ack = game.getInputAck(lobbyId, clientId);
+
+            if (game.snapshotCodecs.get(clientId) === "binary") {
+                const buffer = frame.bufferFor(clientId);
+                client.socket.send(ack ? snapshots.withAck(buffer, ack) : buffer);
+            } else if (ack) {
+                client.socket.send(updatePrefix + ',"ack":' + JSON.stringify(ack) + ',"gameState":' + gameStateStr + '}');
+            } else {
+                client.socket.send(updateStr);
             }
+        };
+
+        Object.keys(lobby.teams).forEach(teamKey => {
+            lobby.teams[teamKey].forEach(sendUpdate);
         });
+
+        lobby.spectators.forEach(sendUpdate);
     });
 };
 
@@ -2,10 +2,19 @@ const fs = require('fs');
 const path = require('path');
 const { crearPartida } = require('./partidasDb');
 const axios = require('axios');
+const crypto = require('crypto');
 const { guardarJugadores } = require('./jugadoresDb.js');
+const SnapshotEncoder = require('./utilsSnapshots.js');
+const clock = require('./utilsClock.js');
 
 const GAME_DURATION = 3 * 1000;  // Duración del juego de 3 segundos
 const COUNTDOWN_30_SECONDS = 30 * 1000;  // Contador de 60 segundos
+const RESUME_GRACE_MS = 15 * 1000;  // Tiempo que se guarda el sitio de un cliente desconectado
+// Antes se avanzaban 2 px por cada updateMovement y el cliente enviaba uno por frame (~60 fps),
+// así que se mantienen los 120 px/s repartidos entre los 50 ticks de utilsGameLoop (TARGET_FPS)
+const PLAYER_SPEED = 120;  // Píxeles por segundo
+const TICK_RATE = 50;
+const GOLD_SLOWDOWN = 1.5;
 
 class GameLogic {
     constructor() {
@@ -14,6 +23,12 @@ class GameLogic {
             this.lobbys = new Map();
             this.mapData = this.loadMapData(); // cargamos el mapa
             this.gameTimers = new Map();  // Mantener un timer para cada lobby
+            this.snapshotCodecs = new Map();  // Formato de "update" negociado en el join ("json" | "binary")
+            this.inputScales = new Map();     // Escala de los ejes de las entradas binarias (join.inputScale)
+            this.resumeTokens = new Map();    // id -> token para retomar la sesión tras reconectar
+            this.pendingRemovals = new Map(); // id -> timeout de los clientes desconectados
+            this.retiredIds = new Set();      // Conexiones temporales que han retomado otra sesión
+            this.onResume = (socket, newId, id, previousSocket) => { };
     
             GameLogic.instance = this;
         }
@@ -228,12 +243,17 @@ class GameLogic {
             // Extraer solo la ciudad y el país
             const { city, country } = response.data;
 
+            // La conexión ya ha retomado otra sesión mientras se esperaba a la API
+            if (this.retiredIds.delete(id)) return null;
+
             // Guardar la IP, ciudad y país junto con el socket
             this.clients.set(id, { socket, clientIp, city, country });
 
             console.log(`Cliente registrado con IP pública: ${clientIp}, Ciudad: ${city}, País: ${country}`);
         } catch (error) {
             console.error('Error al obtener la información de la IP:', error);
+            if (this.retiredIds.delete(id)) return null;
+
             // En caso de error, solo guardamos la IP y el socket (sin detalles adicionales)
             this.clients.set(id, { socket, clientIp });
             console.log(`Cliente registrado con IP pública: ${clientIp} (sin detalles de geolocalización)`);
@@ -243,8 +263,62 @@ class GameLogic {
         return this.clients.get(id);
     }
 
+    issueResumeToken(id) {
+        const token = crypto.randomBytes(16).toString("hex");
+        this.resumeTokens.set(id, token);
+        return token;
+    }
+
+    // El socket se ha cerrado: el jugador se queda en su lobby un tiempo por si reconecta
+    disconnectClient(id) {
+        const client = this.clients.get(id);
+        if (!client || !this.resumeTokens.has(id)) {
+            this.removeClient(id);
+            return;
+        }
+
+        console.log(`Cliente ${id} desconectado, se guarda su sesión ${RESUME_GRACE_MS / 1000}s`);
+        client.input = null; // Deja de moverse mientras no está
+
+        clearTimeout(this.pendingRemovals.get(id));
+        this.pendingRemovals.set(id, setTimeout(() => {
+            this.pendingRemovals.delete(id);
+            this.removeClient(id);
+        }, RESUME_GRACE_MS));
+    }
+
+    // La conexión newId retoma la sesión de id. Devuelve el socket anterior o null si el token no vale.
+    resumeClient(newId, id, token, socket) {
+        const client = this.clients.get(id);
+        if (!client || !token || this.resumeTokens.get(id) !== token) return null;
+
+        clearTimeout(this.pendingRemovals.get(id));
+        this.pendingRemovals.delete(id);
+
+        const previousSocket = client.socket;
+        client.socket = socket;
+        client.input = null;
+
+        // La conexión temporal deja de existir como cliente
+        if (this.clients.has(newId)) {
+            this.clients.delete(newId);
+        } else {
+            this.retiredIds.add(newId);
+        }
+        this.resumeTokens.delete(newId);
+        this.snapshotCodecs.delete(newId);
+        this.inputScales.delete(newId);
+
+        console.log(`Cliente ${id} ha retomado su sesión (conexión ${newId})`);
+        return previousSocket;
+    }
+
     removeClient(id) {
         console.log(`Eliminando cliente con ID: ${id}`);
+
+        this.snapshotCodecs.delete(id);
+        this.inputScales.delete(id);
+        this.resumeTokens.delete(id);
     
         // Eliminar de los lobbys
         for (const [lobbyId, lobby] of this.lobbys.entries()) {
@@ -556,10 +630,70 @@ class GameLogic {
     
             // Si sí es un JSON válido
             if (!obj.type) return;
-    
+
+            // Varios mensajes del mismo tick en un solo frame: se procesan en orden
+            if (obj.type === "batch") {
+                if (!Array.isArray(obj.messages)) return;
+                for (const message of obj.messages) {
+                    if (message && message.type && message.type !== "batch") {
+                        this.handleObject(id, message, socket);
+                    }
+                }
+                return;
+            }
+
+            this.handleObject(id, obj, socket);
+        } catch (error) {
+            console.error("Error en handleMessage:", error);
+        }
+    }
+
+    // Un mensaje ya parseado (suelto o dentro de un batch)
+    handleObject(id, obj, socket) {
+        try {
             //console.log("Mensaje de tipo: " + obj.type + " recibido de " + socket);
     
             switch (obj.type) {
+                case "join": {
+                    // El cliente indica qué formato de snapshot sabe decodificar
+                    const codec = obj.snapshotCodec === "binary" ? "binary" : "json";
+                    this.snapshotCodecs.set(id, codec);
+                    this.setInputCodec(id, obj);
+
+                    socket.send(JSON.stringify({
+                        type: "joinAck",
+                        snapshotCodec: codec,
+                    }));
+                    break;
+                }
+
+                case "resume": {
+                    // Reconexión: la nueva conexión pasa a ser el cliente anterior, en su mismo lobby
+                    const previousSocket = this.resumeClient(id, obj.id, obj.resumeToken, socket);
+                    if (previousSocket) {
+                        this.snapshotCodecs.set(obj.id, obj.snapshotCodec === "binary" ? "binary" : "json");
+                        this.setInputCodec(obj.id, obj);
+                        this.onResume(socket, id, obj.id, previousSocket);
+                        socket.send(JSON.stringify({ type: "resumed", id: obj.id }));
+                    } else {
+                        socket.send(JSON.stringify({ type: "resumeFailed", id: id }));
+                    }
+                    break;
+                }
+
+                case "timeSync": {
+                    // Sincronización de reloj al estilo NTP: t0 es la hora del cliente al enviar,
+                    // t1 la nuestra al recibir y t2 la nuestra al responder
+                    const t1 = clock.now();
+                    socket.send(JSON.stringify({
+                        type: "timeSync",
+                        t0: obj.t0,
+                        t1: t1,
+                        t2: clock.now(),
+                    }));
+                    break;
+                }
+
                 case "userInfo": {
                     console.log(`Cliente ${id} envia información adicional:`, obj);
                 
@@ -648,6 +782,7 @@ class GameLogic {
                                     type: "performAttack",
                                     attacker: id,
                                     viewState: viewState,
+                                    serverTime: clock.now(),
                                     team: client.team,
                                     message: `El jugador con id: ${client.id} está atacando en dirección: ${viewState}`,
                                 };
@@ -735,85 +870,128 @@ class GameLogic {
                        
                 
                 case "updateMovement": {
-                    const dirX = obj.x; // entre -1 y 1
-                    const dirY = obj.y;
-                    const speed = 2;
-                
-                    const firstLobbyId = this.lobbys.keys().next().value;
-                    if (!firstLobbyId) {
-                        console.warn("No hay lobbys creados");
-                        return;
-                    }
-                
-                    const lobby = this.lobbys.get(firstLobbyId);
+                    // Los clientes antiguos no mandan seq (0) y siempre se aceptan
+                    const seq = Number.isInteger(obj.seq) ? obj.seq : 0;
+                    this.applyInput(id, Number(obj.x) || 0, Number(obj.y) || 0, obj.state || "IDLE", seq);
+                    break;
+                }
 
-                    if (!lobby.gameStarted) break;
-                
-                    for (const [teamName, teamSet] of Object.entries(lobby.teams)) {
-                        if (teamSet.has(id)) {
-                            const client = this.clients.get(id);
-                            if (client && client.position) {
+                default:
+                    break;
+            }
+    
+        } catch (error) {
+            console.error("Error en handleObject:", error);
+        }
+    } 
 
-                                let newX, newY;
+    // Mensajes binarios del cliente: de momento solo la entrada compacta (el equivalente a updateMovement)
+    handleBinaryMessage(id, buffer, socket) {
+        try {
+            const input = SnapshotEncoder.decodeInput(buffer, this.inputScales.get(id));
+            if (input) {
+                this.applyInput(id, input.x, input.y, input.state, input.seq);
+            }
+        } catch (error) {
+            console.error("Error en handleBinaryMessage:", error);
+        }
+    }
 
-                                // Si el cliente tiene oro, reducir la velocidad
-                                if (client.hasGold) {
-                                    newX = client.position.x + dirX * speed / 1.5;
-                                    newY = client.position.y + dirY * speed / 1.5;
-                                } else {
-                                    newX = client.position.x + dirX * speed;
-                                    newY = client.position.y + dirY * speed;
-                                }
+    // El cliente indica en el join (o resume) si mandará la entrada en binario y con qué escala
+    setInputCodec(id, obj) {
+        if (obj.inputCodec === "binary") {
+            this.inputScales.set(id, Number(obj.inputScale) || 100);
+        } else {
+            this.inputScales.delete(id);
+        }
+    }
 
-                                this.checkGoldInteraction(firstLobbyId, newX, newY, id);
+    // Solo se guarda la última entrada; el movimiento se aplica en cada tick (stepMovement)
+    applyInput(id, x, y, state, seq) {
+        const client = this.clients.get(id);
+        if (!client) return;
 
-                                const towerColor = this.getTowerColorAtPosition(firstLobbyId, newX, newY);
+        if (seq !== 0 && client.input && seq <= client.input.seq) return;
 
-                                if (towerColor) {
-                                    const client = this.clients.get(id); // Obtén el cliente correspondiente
+        client.input = {
+            x: x, // entre -1 y 1
+            y: y,
+            state: state,
+            seq: seq,
+            steps: 0, // Ticks aplicados con esta entrada, se devuelven en el ack
+        };
+    }
+    
+    
+    // Aplica la última entrada de cada jugador una vez por tick del servidor
+    stepMovement(lobbyId) {
+        const lobby = this.lobbys.get(lobbyId);
+        if (!lobby || !lobby.gameStarted) return;
 
-                                    if (client) {
-                                        if (client.team === towerColor) {
-                                            // El jugador ha tocado una torre de su propio color
-                                            if (client.hasGold) {
-                                                console.log(`Jugador ${client.id} (${client.team}) ha tocado su propia torre con la llave)`);
+        const speed = PLAYER_SPEED / TICK_RATE;
 
-                                                this.endGame(firstLobbyId, client);
-                                            }
-                                        }
-                                    }
-                                }
+        for (const teamSet of Object.values(lobby.teams)) {
+            for (const id of teamSet) {
+                const client = this.clients.get(id);
+                if (!client || !client.position || !client.input) continue;
 
-                                if (this.isPositionValid(newX, newY)) {
-                                    client.position.x = newX;
-                                    client.position.y = newY;
-                                    client.state = obj.state;
-
-                                } else {
-                                    // Opcional: enviar mensaje de colisión al cliente
-                                    client.socket?.send(JSON.stringify({
-                                        type: "collision",
-                                        message: "Movimiento bloqueado por colisión"
-                                    }));
-                                }
-                            }
-                            break;
-                        }
-                    }
-                
-                    break;
+                const dirX = client.input.x;
+                const dirY = client.input.y;
+                client.input.steps++;
+
+                let newX, newY;
+
+                // Si el cliente tiene oro, reducir la velocidad
+                if (client.hasGold) {
+                    newX = client.position.x + dirX * speed / GOLD_SLOWDOWN;
+                    newY = client.position.y + dirY * speed / GOLD_SLOWDOWN;
+                } else {
+                    newX = client.position.x + dirX * speed;
+                    newY = client.position.y + dirY * speed;
                 }
 
-                default:
-                    break;
+                this.checkGoldInteraction(lobbyId, newX, newY, id);
+
+                const towerColor = this.getTowerColorAtPosition(lobbyId, newX, newY);
+
+                // El jugador ha tocado una torre de su propio color con la llave
+                if (towerColor && client.team === towerColor && client.hasGold) {
+                    console.log(`Jugador ${client.id} (${client.team}) ha tocado su propia torre con la llave)`);
+
+                    this.endGame(lobbyId, client);
+                }
+
+                if (this.isPositionValid(newX, newY)) {
+                    client.position.x = newX;
+                    client.position.y = newY;
+                    client.state = client.input.state;
+                    client.colliding = false;
+
+                } else if (!client.colliding) {
+                    // Avisar solo al chocar, no en cada tick que siga empujando contra la pared
+                    client.colliding = true;
+                    client.socket?.send(JSON.stringify({
+                        type: "collision",
+                        message: "Movimiento bloqueado por colisión"
+                    }));
+                }
             }
-    
-        } catch (error) {
-            console.error("Error en handleMessage:", error);
         }
-    } 
-    
-    
+    }
+
+    // Última entrada procesada de un cliente, para que pueda reconciliar su predicción
+    getInputAck(lobbyId, clientId) {
+        const lobby = this.lobbys.get(lobbyId);
+        const client = this.clients.get(clientId);
+        if (!lobby || !client || !client.position) return null;
+
+        return {
+            seq: client.input ? client.input.seq : 0,
+            steps: client.input ? client.input.steps : 0,
+            running: !!lobby.gameStarted,
+        };
+    }
+
     getAttackArea(originX, originY, direction, range, width) {
         const area = [];
     
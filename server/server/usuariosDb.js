@@ -110,6 +110,50 @@ async function obtenerUsuarioPorNickname(nickname) {
     }
 }
 
+// Sesiones de "recordarme": se guarda solo el hash del token y como mucho las MAX_SESIONES más recientes
+const MAX_SESIONES = 5;
+
+async function crearSesion(nickname, hash) {
+    const client = new MongoClient(uri);
+
+    try {
+        await client.connect();
+        const db = client.db(dbName);
+        const usuarios = db.collection(collectionName);
+
+        const resultado = await usuarios.updateOne(
+            { nickname },
+            { $push: { sesiones: { $each: [{ hash, fecha: new Date() }], $slice: -MAX_SESIONES } } }
+        );
+        return resultado.matchedCount > 0;
+
+    } catch (error) {
+        console.error('❌ Error al crear la sesión:', error);
+        return false;
+    } finally {
+        await client.close();
+    }
+}
+
+async function obtenerUsuarioPorSesion(hash) {
+    const client = new MongoClient(uri);
+
+    try {
+        await client.connect();
+        const db = client.db(dbName);
+        const usuarios = db.collection(collectionName);
+
+        const usuario = await usuarios.findOne({ 'sesiones.hash': hash });
+        return usuario;
+
+    } catch (error) {
+        console.error('❌ Error al obtener usuario por sesión:', error);
+        return null;
+    } finally {
+        await client.close();
+    }
+}
+
 async function obtenerUsuarios() {
     const client = new MongoClient(uri);
 
@@ -157,4 +201,4 @@ async function clearUsuariosDb() {
     }
 }
 
-module.exports = { crearUsuario, validarUsuario, obtenerUsuarioPorToken, obtenerUsuarios, clearUsuariosDb, obtenerUsuarioPorNickname };
+module.exports = { crearUsuario, validarUsuario, obtenerUsuarioPorToken, obtenerUsuarios, clearUsuariosDb, obtenerUsuarioPorNickname, crearSesion, obtenerUsuarioPorSesion };
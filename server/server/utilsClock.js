@@ -0,0 +1,12 @@
+'use strict';
+
+// Reloj del servidor con el que se sincronizan los clientes (timeSync) y que se pone en los snapshots:
+// milisegundos monótonos desde que arrancó el proceso. No depende de la hora del sistema, así que no
+// salta si esta se ajusta (NTP, cambio de hora).
+const START = process.hrtime.bigint();
+
+function now() {
+    return Number(process.hrtime.bigint() - START) / 1e6;
+}
+
+module.exports = { now };
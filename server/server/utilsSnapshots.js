@@ -0,0 +1,292 @@
+'use strict';
+
+// Codificador binario de snapshots ("update") con keyframes y deltas por entidad.
+// El formato es big-endian y lo decodifica SnapshotDecoder en el cliente:
+//
+//   u8  kind (KEYFRAME | DELTA)
+//   u8  flags (FLAG_ACK si el frame lleva al final el ack de la entrada del destinatario, FLAG_TIME)
+//   u32 tick
+//   [FLAG_TIME] u32 hora del servidor en ms (utilsClock, módulo 2^32)
+//   u8  número de registros de jugador
+//       u8 handle, u8 máscara de campos y los campos presentes:
+//       FIELD_POSITION -> u16 x, u16 y (posición * POSITION_SCALE)
+//       FIELD_STATE    -> u8 estado
+//       FIELD_TEAM     -> u8 equipo
+//       FIELD_GOLD     -> u8 (0 | 1)
+//       FIELD_IDENTITY -> u8 len + id utf8, u8 len + nickname utf8 (len 0 = sin nickname)
+//   u8  número de handles eliminados, u8 handle por cada uno
+//   u8  número de oros (GOLD_UNCHANGED si no ha cambiado, como mucho MAX_GOLD), u16 x, u16 y por cada uno
+//   [FLAG_ACK] u32 seq, u16 ticks aplicados con esa entrada, u8 (1 si la partida está en marcha)
+//
+// En sentido contrario el cliente puede mandar su entrada (updateMovement) como un paquete de 7 bytes:
+//
+//   u8  INPUT en los 4 bits bajos, estado (STATES) en los 4 altos
+//   i8  x, i8 y (eje * escala negociada en el join, como mucho 127)
+//   u32 seq
+
+const KEYFRAME = 1;
+const DELTA = 2;
+const INPUT = 3;
+const INPUT_SIZE = 7;
+const MAX_INPUT_SCALE = 127;
+
+const FIELD_POSITION = 0x01;
+const FIELD_STATE = 0x02;
+const FIELD_TEAM = 0x04;
+const FIELD_GOLD = 0x08;
+const FIELD_IDENTITY = 0x10;
+const FIELD_ALL = FIELD_POSITION | FIELD_STATE | FIELD_TEAM | FIELD_GOLD | FIELD_IDENTITY;
+
+const FLAG_ACK = 0x01;
+const FLAG_TIME = 0x02;
+
+const GOLD_UNCHANGED = 0xFF;
+const MAX_HANDLES = 255;
+// El número de oros va en un u8 y 0xFF es GOLD_UNCHANGED: solo se codifican los 254 primeros
+const MAX_GOLD = GOLD_UNCHANGED - 1;
+const POSITION_SCALE = 16;       // 1/16 px de precisión, hasta 4096 px
+const KEYFRAME_INTERVAL = 50;    // Un keyframe completo por segundo a 50 ticks
+
+// Mismo orden que los equipos de createLobby()
+const TEAMS = ["blue", "purple", "red", "yellow"];
+const STATES = ["IDLE", "RIGHT", "LEFT", "TOP", "BOTTOM"];
+
+function quantize(value) {
+    return Math.max(0, Math.min(0xFFFF, Math.round((value || 0) * POSITION_SCALE)));
+}
+
+class SnapshotEncoder {
+
+    constructor() {
+        this.lobbies = new Map();
+    }
+
+    getLobby(lobbyId) {
+        let lobby = this.lobbies.get(lobbyId);
+        if (!lobby) {
+            lobby = {
+                tick: 0,
+                sinceKeyframe: 0,
+                handles: new Map(),   // clientId -> handle
+                entities: new Map(),  // handle -> último registro codificado
+                goldKey: "",
+                gold: [],
+                goldTruncated: false, // Ya se ha avisado de que hay más de MAX_GOLD oros
+                synced: new Set(),    // clientes que ya tienen un keyframe como base
+            };
+            this.lobbies.set(lobbyId, lobby);
+        }
+        return lobby;
+    }
+
+    // Prepara el frame del tick actual. Los buffers se construyen solo si algún cliente los pide.
+    // serverTime es la hora (utilsClock) a la que se ha generado el estado.
+    encode(lobbyId, gameState, serverTime) {
+        const lobby = this.getLobby(lobbyId);
+        lobby.tick = (lobby.tick + 1) >>> 0;
+        lobby.time = Math.floor(serverTime || 0) >>> 0;
+        lobby.sinceKeyframe++;
+
+        const records = [];
+        const seen = new Set();
+
+        for (const player of gameState.players || []) {
+            let handle = lobby.handles.get(player.id);
+            if (handle === undefined) {
+                handle = this.allocateHandle(lobby);
+                if (handle === -1) continue;
+                lobby.handles.set(player.id, handle);
+            }
+            seen.add(handle);
+
+            const record = {
+                handle,
+                id: player.id,
+                nickname: player.nickname || "",
+                x: quantize(player.position?.x),
+                y: quantize(player.position?.y),
+                state: STATES.indexOf(String(player.state || "IDLE").toUpperCase()),
+                team: TEAMS.indexOf(String(player.team || "").toLowerCase()),
+                hasGold: player.hasGold ? 1 : 0,
+            };
+            if (record.state === -1) record.state = 0;
+            if (record.team === -1) record.team = 0;
+
+            const previous = lobby.entities.get(handle);
+            let mask = 0;
+            if (!previous) {
+                mask = FIELD_ALL;
+            } else {
+                if (previous.x !== record.x || previous.y !== record.y) mask |= FIELD_POSITION;
+                if (previous.state !== record.state) mask |= FIELD_STATE;
+                if (previous.team !== record.team) mask |= FIELD_TEAM;
+                if (previous.hasGold !== record.hasGold) mask |= FIELD_GOLD;
+                if (previous.nickname !== record.nickname) mask |= FIELD_IDENTITY;
+            }
+            record.mask = mask;
+            records.push(record);
+        }
+
+        const removed = [];
+        for (const [clientId, handle] of lobby.handles.entries()) {
+            if (!seen.has(handle)) {
+                lobby.handles.delete(clientId);
+                lobby.entities.delete(handle);
+                removed.push(handle);
+            }
+        }
+
+        let goldList = gameState.gold || [];
+        if (goldList.length > MAX_GOLD) {
+            if (!lobby.goldTruncated) {
+                console.warn(`Lobby ${lobbyId}: ${goldList.length} oros, en el snapshot solo caben ${MAX_GOLD}`);
+                lobby.goldTruncated = true;
+            }
+            goldList = goldList.slice(0, MAX_GOLD);
+        }
+        const gold = goldList.map(g => ({ x: quantize(g.position?.x), y: quantize(g.position?.y) }));
+        const goldKey = gold.map(g => g.x + "," + g.y).join(";");
+        const goldChanged = goldKey !== lobby.goldKey;
+
+        for (const record of records) {
+            lobby.entities.set(record.handle, record);
+        }
+        lobby.gold = gold;
+        lobby.goldKey = goldKey;
+
+        const forceKeyframe = lobby.sinceKeyframe >= KEYFRAME_INTERVAL;
+        if (forceKeyframe) {
+            lobby.sinceKeyframe = 0;
+            lobby.synced.clear();
+        }
+
+        let keyframe = null;
+        let delta = null;
+
+        return {
+            tick: lobby.tick,
+            bufferFor: (clientId) => {
+                if (!lobby.synced.has(clientId)) {
+                    lobby.synced.add(clientId);
+                    if (!keyframe) keyframe = this.writeKeyframe(lobby);
+                    return keyframe;
+                }
+                if (!delta) delta = this.writeDelta(lobby, records, removed, goldChanged);
+                return delta;
+            }
+        };
+    }
+
+    // El cliente necesita un keyframe nuevo (reconexión, cambio de lobby...)
+    forget(clientId) {
+        for (const lobby of this.lobbies.values()) {
+            lobby.synced.delete(clientId);
+        }
+    }
+
+    // Copia del frame con el ack de un cliente al final; el frame original se comparte entre clientes
+    withAck(buffer, ack) {
+        const out = Buffer.allocUnsafe(buffer.length + 7);
+        buffer.copy(out, 0);
+        out[1] |= FLAG_ACK;
+        let offset = buffer.length;
+        offset = out.writeUInt32BE(ack.seq >>> 0, offset);
+        offset = out.writeUInt16BE(Math.min(ack.steps, 0xFFFF), offset);
+        out.writeUInt8(ack.running ? 1 : 0, offset);
+        return out;
+    }
+
+    allocateHandle(lobby) {
+        const used = new Set(lobby.handles.values());
+        for (let handle = 0; handle < MAX_HANDLES; handle++) {
+            if (!used.has(handle)) return handle;
+        }
+        return -1;
+    }
+
+    writeKeyframe(lobby) {
+        const records = Array.from(lobby.entities.values(), record => ({ ...record, mask: FIELD_ALL }));
+        return this.writeFrame(KEYFRAME, lobby.tick, lobby.time, records, [], lobby.gold);
+    }
+
+    writeDelta(lobby, records, removed, goldChanged) {
+        const changed = records.filter(record => record.mask !== 0);
+        return this.writeFrame(DELTA, lobby.tick, lobby.time, changed, removed, goldChanged ? lobby.gold : null);
+    }
+
+    writeFrame(kind, tick, time, records, removed, gold) {
+        // Cabecera + registros + eliminados + oro, calculado al máximo para no redimensionar
+        let size = 1 + 1 + 4 + 4 + 1 + 1 + removed.length + 1 + (gold ? gold.length * 4 : 0);
+        const identities = records.map(record => {
+            if (!(record.mask & FIELD_IDENTITY)) return null;
+            const id = Buffer.from(record.id, "utf8").subarray(0, 255);
+            const nickname = Buffer.from(record.nickname, "utf8").subarray(0, 255);
+            return { id, nickname };
+        });
+        records.forEach((record, i) => {
+            size += 2;
+            if (record.mask & FIELD_POSITION) size += 4;
+            if (record.mask & FIELD_STATE) size += 1;
+            if (record.mask & FIELD_TEAM) size += 1;
+            if (record.mask & FIELD_GOLD) size += 1;
+            if (identities[i]) size += 2 + identities[i].id.length + identities[i].nickname.length;
+        });
+
+        const buffer = Buffer.allocUnsafe(size);
+        let offset = 0;
+        offset = buffer.writeUInt8(kind, offset);
+        offset = buffer.writeUInt8(FLAG_TIME, offset);
+        offset = buffer.writeUInt32BE(tick, offset);
+        offset = buffer.writeUInt32BE(time, offset);
+
+        offset = buffer.writeUInt8(records.length, offset);
+        records.forEach((record, i) => {
+            offset = buffer.writeUInt8(record.handle, offset);
+            offset = buffer.writeUInt8(record.mask, offset);
+            if (record.mask & FIELD_POSITION) {
+                offset = buffer.writeUInt16BE(record.x, offset);
+                offset = buffer.writeUInt16BE(record.y, offset);
+            }
+            if (record.mask & FIELD_STATE) offset = buffer.writeUInt8(record.state, offset);
+            if (record.mask & FIELD_TEAM) offset = buffer.writeUInt8(record.team, offset);
+            if (record.mask & FIELD_GOLD) offset = buffer.writeUInt8(record.hasGold, offset);
+            if (identities[i]) {
+                offset = buffer.writeUInt8(identities[i].id.length, offset);
+                offset += identities[i].id.copy(buffer, offset);
+                offset = buffer.writeUInt8(identities[i].nickname.length, offset);
+                offset += identities[i].nickname.copy(buffer, offset);
+            }
+        });
+
+        offset = buffer.writeUInt8(removed.length, offset);
+        for (const handle of removed) {
+            offset = buffer.writeUInt8(handle, offset);
+        }
+
+        if (gold) {
+            offset = buffer.writeUInt8(gold.length, offset);
+            for (const g of gold) {
+                offset = buffer.writeUInt16BE(g.x, offset);
+                offset = buffer.writeUInt16BE(g.y, offset);
+            }
+        } else {
+            offset = buffer.writeUInt8(GOLD_UNCHANGED, offset);
+        }
+
+        return buffer;
+    }
+
+    // Paquete de entrada binario del cliente, o null si no lo es
+    static decodeInput(buffer, scale) {
+        if (buffer.length < INPUT_SIZE || (buffer[0] & 0x0F) !== INPUT) return null;
+        const divisor = Math.max(1, Math.min(MAX_INPUT_SCALE, scale || 1));
+        return {
+            state: STATES[buffer[0] >> 4] || "IDLE",
+            x: Math.max(-1, Math.min(1, buffer.readInt8(1) / divisor)),
+            y: Math.max(-1, Math.min(1, buffer.readInt8(2) / divisor)),
+            seq: buffer.readUInt32BE(3),
+        };
+    }
+}
+
+module.exports = SnapshotEncoder;
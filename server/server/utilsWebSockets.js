@@ -3,6 +3,14 @@
 const { Server, OPEN } = require('ws');
 const { v4: uuidv4 } = require('uuid');
 
+const HEARTBEAT_MS = 5000; // Las conexiones que no responden al ping en este tiempo se cierran
+const PROBE_MAX_MS = 10000; // Vida máxima de una conexión de medida de latencia (/probe)
+
+// permessage-deflate: solo se comprimen los mensajes a partir del umbral (los deltas binarios suelen ser
+// más pequeños y no compensa). WS_DEFLATE=0 lo desactiva.
+const DEFLATE_ENABLED = process.env.WS_DEFLATE !== "0";
+const DEFLATE_THRESHOLD = parseInt(process.env.WS_DEFLATE_THRESHOLD || "256", 10);
+
 class Obj {
 
     init(httpServer, port) {
@@ -10,20 +18,49 @@ class Obj {
         // Define empty callbacks
         this.onConnection = (socket, id) => { }
         this.onMessage = (socket, id, obj) => { }
+        this.onBinaryMessage = (socket, id, buffer) => { }
         this.onClose = (socket, id) => { }
 
         // Run WebSocket server
-        this.ws = new Server({ server: httpServer });
+        this.ws = new Server({
+            server: httpServer,
+            perMessageDeflate: DEFLATE_ENABLED ? {
+                threshold: DEFLATE_THRESHOLD,
+                zlibDeflateOptions: { level: 3 },  // Poco coste de CPU por cada snapshot
+                concurrencyLimit: 10,
+            } : false,
+        });
         this.socketsClients = new Map();
         console.log(`Listening for WebSocket queries on ${port}`);
 
         // What to do when a websocket client connects
         this.ws.on('connection', (ws, req) => {
+            // Conexiones con las que el cliente mide la latencia de cada nodo (EndpointSelector): ws contesta
+            // solo los ping y no se registran como clientes
+            if (req.url && req.url.startsWith('/probe')) {
+                const timeout = setTimeout(() => ws.terminate(), PROBE_MAX_MS);
+                ws.on('close', () => clearTimeout(timeout));
+                ws.on('error', () => {});
+                return;
+            }
             this.newConnection(ws, req); // Pasar el req aquí para obtener la IP
         });
+
+        // Heartbeat: detectar conexiones muertas (cambio de red en móviles) sin esperar al timeout de TCP
+        this.heartbeat = setInterval(() => {
+            this.ws.clients.forEach((con) => {
+                if (con.isAlive === false) {
+                    con.terminate();
+                    return;
+                }
+                con.isAlive = false;
+                con.ping();
+            });
+        }, HEARTBEAT_MS);
     }
 
     end() {
+        clearInterval(this.heartbeat);
         this.ws.close();
     }
 
@@ -61,14 +98,33 @@ class Obj {
             this.onConnection(con, id, clientIp); // Pasamos la IP aquí
         }
     
+        con.isAlive = true;
+        con.on('pong', () => {
+            con.isAlive = true;
+        });
+
         con.on("close", () => {
             this.closeConnection(con);
         });
     
-        con.on('message', (bufferedMessage) => { 
-            this.newMessage(con, id, bufferedMessage);
+        con.on('message', (bufferedMessage, isBinary) => { 
+            // El id puede cambiar si la conexión retoma una sesión anterior (rebind)
+            const metadata = this.socketsClients.get(con);
+            this.newMessage(con, metadata ? metadata.id : id, bufferedMessage, isBinary);
         });
     }
+
+    // La conexión pasa a identificarse con otro id
+    rebind(con, id) {
+        const metadata = this.socketsClients.get(con);
+        if (metadata) metadata.id = id;
+    }
+
+    // Cierra una conexión sin avisar a onClose: su sesión ya la tiene otra conexión
+    detach(con) {
+        this.socketsClients.delete(con);
+        con.terminate();
+    }
     
 
     closeConnection(con) {
@@ -116,7 +172,14 @@ class Obj {
     }
 
     // A message is received from a websocket client
-    newMessage(ws, id, bufferedMessage) {
+    newMessage(ws, id, bufferedMessage, isBinary) {
+        // Los frames binarios (entrada compacta) se pasan tal cual, sin convertir a texto
+        if (isBinary) {
+            if (this.onBinaryMessage && typeof this.onBinaryMessage === "function") {
+                this.onBinaryMessage(ws, id, bufferedMessage)
+            }
+            return
+        }
         var messageAsString = bufferedMessage.toString()
         if (this.onMessage && typeof this.onMessage === "function") {
             this.onMessage(ws, id, messageAsString)
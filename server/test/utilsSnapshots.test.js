@@ -0,0 +1,69 @@
+'use strict';
+
+// Pruebas del formato binario de utilsSnapshots.js (npm test).
+// Los frames en hexadecimal son los mismos que decodifica SnapshotDecoderTest en el cliente:
+// si cambia el formato hay que actualizarlos en los dos lados.
+
+const test = require('node:test');
+const assert = require('node:assert');
+const SnapshotEncoder = require('../server/utilsSnapshots');
+
+const KEYFRAME_HEX = '0102000000010001e24002001f06480c8001020102613107c391616e64c3ba011f00a0014000000002623200000120002800';
+const DELTA_HEX = '0202000000020001e25401000106500c800101ff';
+const DELTA_ACK_HEX = '0203000000020001e25401000106500c800101ff0000002a000301';
+
+const PLAYER_A = { id: 'a1', nickname: 'Ñandú', position: { x: 100.5, y: 200 }, state: 'RIGHT', team: 'red', hasGold: true };
+const PLAYER_B = { id: 'b2', position: { x: 10, y: 20 }, state: 'IDLE', team: 'blue' };
+const GOLD = [{ position: { x: 512, y: 640 } }];
+
+function goldList(count) {
+    return Array.from({ length: count }, (_, i) => ({ position: { x: i, y: i } }));
+}
+
+test('el primer frame de un cliente es un keyframe completo', () => {
+    const encoder = new SnapshotEncoder();
+    const frame = encoder.encode('lobby', { players: [PLAYER_A, PLAYER_B], gold: GOLD }, 123456);
+    assert.strictEqual(frame.bufferFor('c1').toString('hex'), KEYFRAME_HEX);
+});
+
+test('el delta solo lleva lo que ha cambiado, los eliminados y el oro sin cambios', () => {
+    const encoder = new SnapshotEncoder();
+    encoder.encode('lobby', { players: [PLAYER_A, PLAYER_B], gold: GOLD }, 123456).bufferFor('c1');
+
+    const moved = { ...PLAYER_A, position: { x: 101, y: 200 } };
+    const frame = encoder.encode('lobby', { players: [moved], gold: GOLD }, 123476);
+    const delta = frame.bufferFor('c1');
+    assert.strictEqual(delta.toString('hex'), DELTA_HEX);
+    assert.strictEqual(encoder.withAck(delta, { seq: 42, steps: 3, running: true }).toString('hex'), DELTA_ACK_HEX);
+
+    // Un cliente nuevo recibe el keyframe aunque los demás reciban deltas
+    assert.strictEqual(frame.bufferFor('c2')[0], 1);
+});
+
+test('withAck no modifica el frame compartido', () => {
+    const encoder = new SnapshotEncoder();
+    const buffer = encoder.encode('lobby', { players: [PLAYER_A], gold: [] }, 0).bufferFor('c1');
+    const copy = Buffer.from(buffer);
+    encoder.withAck(buffer, { seq: 1, steps: 1, running: false });
+    assert.deepStrictEqual(buffer, copy);
+});
+
+test('el número de oros nunca se confunde con GOLD_UNCHANGED', () => {
+    for (const count of [254, 255, 300]) {
+        const encoder = new SnapshotEncoder();
+        const buffer = encoder.encode('lobby', { players: [], gold: goldList(count) }, 0).bufferFor('c1');
+        // Cabecera (10) + 0 registros + 0 eliminados, y después el número de oros
+        const encoded = buffer.readUInt8(12);
+        assert.strictEqual(encoded, 254);
+        assert.strictEqual(buffer.length, 13 + encoded * 4);
+    }
+});
+
+test('decodeInput lee el paquete de 7 bytes con la escala negociada', () => {
+    // El mismo paquete que genera InputPacketTest en el cliente: RIGHT, x 64, y -64, seq 258
+    const packet = Buffer.from([0x13, 64, 0xC0, 0, 0, 1, 2]);
+    assert.deepStrictEqual(SnapshotEncoder.decodeInput(packet, 64), { state: 'RIGHT', x: 1, y: -1, seq: 258 });
+    assert.deepStrictEqual(SnapshotEncoder.decodeInput(packet, 128), { state: 'RIGHT', x: 64 / 127, y: -64 / 127, seq: 258 });
+    assert.strictEqual(SnapshotEncoder.decodeInput(Buffer.from([0x13, 0, 0]), 64), null);
+    assert.strictEqual(SnapshotEncoder.decodeInput(Buffer.from([0x01, 0, 0, 0, 0, 0, 0]), 64), null);
+});